@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter.benchmark;
+
+import eu.europa.ec.dgc.bloomfilter.BloomFilterImpl;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds into an empty filter, which is recreated for every iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AddBenchmark {
+
+    public static class AddState extends FilterParams {
+        BloomFilterImpl filter;
+        byte[][] elements;
+
+        @Setup(Level.Trial)
+        public void setUpElements() {
+            elements = randomElements(4);
+        }
+
+        @Setup(Level.Iteration)
+        public void setUpFilter() {
+            filter = newFilter();
+        }
+    }
+
+    @Benchmark
+    public void add(AddState state, Cursor cursor) throws Exception {
+        state.filter.add(cursor.next(state.elements));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void addParallel(AddState state, Cursor cursor) throws Exception {
+        state.filter.add(cursor.next(state.elements));
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter.benchmark;
+
+import eu.europa.ec.dgc.bloomfilter.BloomFilterImpl;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction of empty filters with both constructors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConstructionBenchmark {
+
+    public static class ConstructionState extends FilterParams {
+    }
+
+    @Benchmark
+    public BloomFilterImpl withProbRate(ConstructionState state) {
+        return new BloomFilterImpl(state.n, state.p, state.hashStrategy);
+    }
+
+    @Benchmark
+    public BloomFilterImpl withSize(ConstructionState state) {
+        return new BloomFilterImpl(state.sizeInBytes(), state.numberOfHashes(), state.n, state.hashStrategy);
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Position of a benchmark thread in the prepared elements.
+ */
+@State(Scope.Thread)
+public class Cursor {
+    private int position;
+
+    byte[] next(byte[][] elements) {
+        return elements[position++ & (elements.length - 1)];
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter.benchmark;
+
+import eu.europa.ec.dgc.bloomfilter.BloomFilterImpl;
+import eu.europa.ec.dgc.bloomfilter.HashStrategy;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Filter parameters shared by all benchmarks. Narrow them on the command line, e.g. -p n=1000000.
+ */
+@State(Scope.Benchmark)
+public abstract class FilterParams {
+    /** Amount of prepared elements. Must be a power of two. */
+    static final int ELEMENTS = 1 << 14;
+    static final int ELEMENT_LENGTH = 32;
+
+    @Param({"10000", "1000000", "100000000"})
+    public int n;
+
+    @Param({"0.01", "0.0001"})
+    public float p;
+
+    /** Number of hashes, 0 uses the optimal number for n and p. */
+    @Param({"0", "10"})
+    public int k;
+
+    @Param({"SHA256", "SHA256_DOUBLE_HASHING", "SHA256_BLOCKED"})
+    public HashStrategy hashStrategy;
+
+    /**
+     * Size of the filter in bytes, as calculated by the constructor for n and p.
+     */
+    int sizeInBytes() {
+        long bits = (long) Math.ceil((n * Math.log(p)) / Math.log(1 / Math.pow(2, Math.log(2))));
+        int bytes = (int) (bits / 8) + 1;
+        return (bytes / 4 + bytes % 4) * 4;
+    }
+
+    byte numberOfHashes() {
+        if (k > 0) {
+            return (byte) k;
+        }
+        return (byte) Math.max(1, Math.round((double) sizeInBytes() * 8 / n * Math.log(2)));
+    }
+
+    /**
+     * Creates an empty filter of the benchmarked size. The defined element amount is set to the maximum,
+     * so that filling the filter beyond n does not log on every add.
+     */
+    BloomFilterImpl newFilter() {
+        return new BloomFilterImpl(sizeInBytes(), numberOfHashes(), Integer.MAX_VALUE, hashStrategy);
+    }
+
+    /**
+     * Sets every bit with a probability of 1/2, the fill ratio of a filter with n elements and optimal k.
+     */
+    static void fillRandomly(BloomFilterImpl filter, long seed) {
+        Random random = new Random(seed);
+        AtomicIntegerArray data = filter.getData();
+        for (int i = 0; i < data.length(); i++) {
+            data.set(i, random.nextInt());
+        }
+    }
+
+    static byte[][] randomElements(long seed) {
+        Random random = new Random(seed);
+        byte[][] elements = new byte[ELEMENTS][ELEMENT_LENGTH];
+        for (byte[] element : elements) {
+            random.nextBytes(element);
+        }
+        return elements;
+    }
+}
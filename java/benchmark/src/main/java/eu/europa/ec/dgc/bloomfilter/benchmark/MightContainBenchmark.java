@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter.benchmark;
+
+import eu.europa.ec.dgc.bloomfilter.BloomFilterImpl;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups of added elements (hits) and of unknown elements (misses) in a filter with a fill ratio of 1/2.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MightContainBenchmark {
+
+    public static class LookupState extends FilterParams {
+        BloomFilterImpl filter;
+        byte[][] hits;
+        byte[][] misses;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            filter = newFilter();
+            fillRandomly(filter, 1);
+            hits = randomElements(2);
+            misses = randomElements(3);
+            for (byte[] hit : hits) {
+                filter.add(hit);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean hit(LookupState state, Cursor cursor) throws Exception {
+        return state.filter.mightContain(cursor.next(state.hits));
+    }
+
+    @Benchmark
+    public boolean miss(LookupState state, Cursor cursor) throws Exception {
+        return state.filter.mightContain(cursor.next(state.misses));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean hitParallel(LookupState state, Cursor cursor) throws Exception {
+        return state.filter.mightContain(cursor.next(state.hits));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean missParallel(LookupState state, Cursor cursor) throws Exception {
+        return state.filter.mightContain(cursor.next(state.misses));
+    }
+}
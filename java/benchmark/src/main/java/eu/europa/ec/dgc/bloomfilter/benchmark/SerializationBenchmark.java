@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter.benchmark;
+
+import eu.europa.ec.dgc.bloomfilter.BloomFilterImpl;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of a filled filter with writeTo and deserialization with the stream constructor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class SerializationBenchmark {
+
+    public static class SerializedState extends FilterParams {
+        BloomFilterImpl filter;
+        byte[] serialized;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            filter = newFilter();
+            fillRandomly(filter, 5);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(sizeInBytes() + 64);
+            filter.writeTo(output);
+            serialized = output.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream writeTo(SerializedState state) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(state.serialized.length);
+        state.filter.writeTo(output);
+        return output;
+    }
+
+    @Benchmark
+    public BloomFilterImpl readFrom(SerializedState state) throws Exception {
+        return new BloomFilterImpl(new ByteArrayInputStream(state.serialized));
+    }
+}
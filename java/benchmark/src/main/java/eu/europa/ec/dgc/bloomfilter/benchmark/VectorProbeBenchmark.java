@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter.benchmark;
+
+import eu.europa.ec.dgc.bloomfilter.BloomFilterImpl;
+import eu.europa.ec.dgc.bloomfilter.HashStrategy;
+import eu.europa.ec.dgc.bloomfilter.ImmutableBloomFilter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups in an immutable filter with the vectorized probe kernel and with the scalar one. Both run with
+ * the incubator module, the scalar forks disable the vector kernel by system property. The filters are
+ * within the limits of the vector kernel: at most 256 KB and at least 16 hashes. Runs on JDK 17 or later.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VectorProbeBenchmark {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String DISABLE_VECTOR = "-Deu.europa.ec.dgc.bloomfilter.disableVector=true";
+
+    @State(Scope.Benchmark)
+    public static class ProbeState {
+        @Param({"10000", "50000"})
+        public int n;
+
+        @Param({"0.00001", "0.0000001"})
+        public float p;
+
+        @Param({"SHA256_DOUBLE_HASHING", "MURMUR3_128"})
+        public HashStrategy hashStrategy;
+
+        ImmutableBloomFilter filter;
+        byte[][] hits;
+        byte[][] misses;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            BloomFilterImpl source = new BloomFilterImpl(n, p, hashStrategy);
+            hits = FilterParams.randomElements(2);
+            misses = FilterParams.randomElements(3);
+            Random random = new Random(4);
+            byte[] element = new byte[FilterParams.ELEMENT_LENGTH];
+            for (int i = 0; i < n; i++) {
+                if (i < hits.length) {
+                    source.add(hits[i]);
+                } else {
+                    random.nextBytes(element);
+                    source.add(element);
+                }
+            }
+            filter = source.freeze();
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "--add-modules", VECTOR_MODULE})
+    public boolean vectorHit(ProbeState state, Cursor cursor) throws Exception {
+        return state.filter.mightContain(cursor.next(state.hits));
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "--add-modules", VECTOR_MODULE, DISABLE_VECTOR})
+    public boolean scalarHit(ProbeState state, Cursor cursor) throws Exception {
+        return state.filter.mightContain(cursor.next(state.hits));
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "--add-modules", VECTOR_MODULE})
+    public boolean vectorMiss(ProbeState state, Cursor cursor) throws Exception {
+        return state.filter.mightContain(cursor.next(state.misses));
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "--add-modules", VECTOR_MODULE, DISABLE_VECTOR})
+    public boolean scalarMiss(ProbeState state, Cursor cursor) throws Exception {
+        return state.filter.mightContain(cursor.next(state.misses));
+    }
+}
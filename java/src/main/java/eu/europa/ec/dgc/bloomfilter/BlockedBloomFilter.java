@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.io.InputStream;
+
+/**
+ * Blocked bloom filter. All k bits of an element are set within one block of 512 bits (16 words,
+ * the size of a cache line), so a lookup touches one block instead of k random positions of the filter.
+ * The size is rounded up to whole blocks. For the same size, the false positive rate is slightly
+ * higher than the one of a standard filter.
+ *
+ * <p>The filter is serialized in the standard format with the hash function id of
+ * {@link HashStrategy#SHA256_BLOCKED}, so {@link BloomFilterImpl#BloomFilterImpl(InputStream)}
+ * and {@link MappedBloomFilter} read it like every other filter.</p>
+ */
+public class BlockedBloomFilter extends BloomFilterImpl {
+
+    public BlockedBloomFilter(int numberOfElements, float probRate) {
+        super(numberOfElements, probRate, HashStrategy.SHA256_BLOCKED);
+    }
+
+    public BlockedBloomFilter(long size, byte numberOfHashes, int numberOfElements) {
+        super(size, numberOfHashes, numberOfElements, HashStrategy.SHA256_BLOCKED);
+    }
+}
@@ -8,7 +8,11 @@ import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 
 public interface BloomFilter {
     float   getP();
@@ -17,7 +21,72 @@ public interface BloomFilter {
     int     getN();
     void    add(byte[] element)                 throws NoSuchAlgorithmException, FilterException, IOException;
     boolean mightContain(byte[] element)        throws NoSuchAlgorithmException, FilterException, IOException;
-    void    readFrom(InputStream inputStream);
+    void    readFrom(InputStream inputStream)   throws FilterException, IOException;
     void    writeTo(OutputStream outputStream)  throws FilterException, IOException;
-    
+
+    /**
+     * Adds the element given by the range of the array. Implementations which can hash the range in
+     * place override the default, which copies the range.
+     */
+    default void add(byte[] element, int offset, int length)
+            throws NoSuchAlgorithmException, FilterException, IOException {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        this.add(Arrays.copyOfRange(element, offset, offset + length));
+    }
+
+    /**
+     * Adds the bytes between position and limit of the buffer, the position is not changed.
+     */
+    default void add(ByteBuffer element) throws NoSuchAlgorithmException, FilterException, IOException {
+        this.add(copy(element));
+    }
+
+    /**
+     * Looks up the element given by the range of the array.
+     */
+    default boolean mightContain(byte[] element, int offset, int length)
+            throws NoSuchAlgorithmException, FilterException, IOException {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        return this.mightContain(Arrays.copyOfRange(element, offset, offset + length));
+    }
+
+    /**
+     * Looks up the bytes between position and limit of the buffer, the position is not changed.
+     */
+    default boolean mightContain(ByteBuffer element) throws NoSuchAlgorithmException, FilterException, IOException {
+        return this.mightContain(copy(element));
+    }
+
+    private static byte[] copy(ByteBuffer element) {
+        byte[] bytes = new byte[element.remaining()];
+        element.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Looks up a batch of elements, out[i] is the result of elements[i].
+     * Implementations may reorder the memory accesses of the batch.
+     *
+     * @param elements elements to look up
+     * @param out results, at least as long as elements
+     */
+    default void mightContainAll(byte[][] elements, boolean[] out)
+            throws NoSuchAlgorithmException, FilterException, IOException {
+        if (out.length < elements.length) {
+            throw new IllegalArgumentException("out shorter than elements");
+        }
+        for (int i = 0; i < elements.length; i++) {
+            out[i] = this.mightContain(elements[i]);
+        }
+    }
+
+    /**
+     * @return the results of {@link #mightContainAll(byte[][], boolean[])} in the order of the elements
+     */
+    default boolean[] mightContainAll(List<byte[]> elements)
+            throws NoSuchAlgorithmException, FilterException, IOException {
+        boolean[] out = new boolean[elements.size()];
+        this.mightContainAll(elements.toArray(new byte[0][]), out);
+        return out;
+    }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import eu.europa.ec.dgc.bloomfilter.exception.FilterExceptionsTypes;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.CRC32C;
+
+/**
+ * Difference between two versions of a filter with the same m, k and hash function.
+ * Only the changed words are stored, as XOR of both versions, so a client holding the base version
+ * downloads the delta instead of the whole filter.
+ *
+ * <p>The delta is serialized in big endian:
+ * version (2 byte), k (1 byte), used hash function (1 byte), data length in words (4 byte),
+ * CRC32C of the base words (4 byte), p (4 byte float), n (4 byte), current element amount (4 byte)
+ * of the target version, amount of changed words (4 byte), followed by every changed word as
+ * distance to the previous changed word (unsigned LEB128 varint, the first one relative to -1)
+ * and the XOR of base and target word (4 byte).</p>
+ */
+public final class BloomFilterDelta {
+    private static final short VERSION = 1;
+
+    private final byte numberOfHashes;
+    private final byte usedHashFunction;
+    private final int dataLength;
+    private final int baseChecksum;
+    private final float probRate;
+    private final int definedElementAmount;
+    private final int currentElementAmount;
+    private final int[] positions;
+    private final int[] changes;
+
+    private BloomFilterDelta(BloomFilterImpl target, int baseChecksum, int[] positions, int[] changes) {
+        this.numberOfHashes = (byte) target.getK();
+        this.usedHashFunction = target.getUsedHashFunction();
+        this.dataLength = target.getData().length();
+        this.baseChecksum = baseChecksum;
+        this.probRate = target.getP();
+        this.definedElementAmount = target.getN();
+        this.currentElementAmount = target.getCurrentElementAmount();
+        this.positions = positions;
+        this.changes = changes;
+    }
+
+    /**
+     * Reads a delta written by {@link #writeTo(OutputStream)}.
+     *
+     * @param inputStream
+     * @throws IOException if the stream ends early or has an unknown version
+     */
+    public BloomFilterDelta(InputStream inputStream) throws IOException {
+        DataInputStream dis = new DataInputStream(inputStream);
+        short version = dis.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported delta version " + version);
+        }
+        this.numberOfHashes = dis.readByte();
+        this.usedHashFunction = dis.readByte();
+        this.dataLength = dis.readInt();
+        this.baseChecksum = dis.readInt();
+        this.probRate = dis.readFloat();
+        this.definedElementAmount = dis.readInt();
+        this.currentElementAmount = dis.readInt();
+        int count = dis.readInt();
+        if (count < 0 || count > this.dataLength) {
+            throw new IOException("Invalid amount of changed words " + count);
+        }
+        this.positions = new int[count];
+        this.changes = new int[count];
+        int position = -1;
+        for (int i = 0; i < count; i++) {
+            position += readVarInt(dis);
+            if (position < 0 || position >= this.dataLength) {
+                throw new IOException("Changed word out of range " + position);
+            }
+            this.positions[i] = position;
+            this.changes[i] = dis.readInt();
+        }
+    }
+
+    /**
+     * Calculates the delta from base to target.
+     *
+     * @throws FilterException if both filters differ in m, k or hash function
+     */
+    public static BloomFilterDelta diff(BloomFilterImpl base, BloomFilterImpl target) throws FilterException {
+        checkCompatible(base, target.getData().length(), (byte) target.getK(), target.getUsedHashFunction());
+        AtomicIntegerArray baseData = base.getData();
+        AtomicIntegerArray targetData = target.getData();
+
+        int count = 0;
+        for (int i = 0; i < baseData.length(); i++) {
+            if (baseData.get(i) != targetData.get(i)) {
+                count++;
+            }
+        }
+        int[] positions = new int[count];
+        int[] changes = new int[count];
+        int change = 0;
+        for (int i = 0; i < baseData.length() && change < count; i++) {
+            int xor = baseData.get(i) ^ targetData.get(i);
+            if (xor != 0) {
+                positions[change] = i;
+                changes[change++] = xor;
+            }
+        }
+        return new BloomFilterDelta(target, checksum(baseData), positions, changes);
+    }
+
+    /**
+     * Applies the delta in place, afterwards the filter equals the target version.
+     * Concurrent lookups may see a mix of both versions while the delta is applied.
+     *
+     * @throws FilterException if the filter is not the base version of the delta
+     */
+    public void applyTo(BloomFilterImpl filter) throws FilterException {
+        checkCompatible(filter, this.dataLength, this.numberOfHashes, this.usedHashFunction);
+        AtomicIntegerArray data = filter.getData();
+        if (checksum(data) != this.baseChecksum) {
+            throw new FilterException("Filter is not the base version of the delta", FilterExceptionsTypes.INVALID_PARAM);
+        }
+        for (int i = 0; i < this.positions.length; i++) {
+            data.accumulateAndGet(this.positions[i], this.changes[i], (word, change) -> word ^ change);
+        }
+        filter.setHeader(this.probRate, this.definedElementAmount, this.currentElementAmount);
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream dos = new DataOutputStream(outputStream);
+        dos.writeShort(VERSION);
+        dos.writeByte(this.numberOfHashes);
+        dos.writeByte(this.usedHashFunction);
+        dos.writeInt(this.dataLength);
+        dos.writeInt(this.baseChecksum);
+        dos.writeFloat(this.probRate);
+        dos.writeInt(this.definedElementAmount);
+        dos.writeInt(this.currentElementAmount);
+        dos.writeInt(this.positions.length);
+        int previous = -1;
+        for (int i = 0; i < this.positions.length; i++) {
+            writeVarInt(dos, this.positions[i] - previous);
+            dos.writeInt(this.changes[i]);
+            previous = this.positions[i];
+        }
+        dos.flush();
+    }
+
+    /**
+     * @return the amount of changed words
+     */
+    public int size() {
+        return this.positions.length;
+    }
+
+    private static void checkCompatible(BloomFilterImpl filter, int dataLength, byte numberOfHashes,
+                                        byte usedHashFunction) throws FilterException {
+        if (filter.getData().length() != dataLength || filter.getK() != numberOfHashes
+                || filter.getUsedHashFunction() != usedHashFunction) {
+            throw new FilterException("Filters differ in m, k or hash function", FilterExceptionsTypes.INVALID_PARAM);
+        }
+    }
+
+    /**
+     * CRC32C of the words in big endian order.
+     */
+    static int checksum(AtomicIntegerArray data) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(FilterFormat.CHUNK_SIZE);
+        for (int i = 0; i < data.length(); i++) {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+            buffer.putInt(data.get(i));
+        }
+        buffer.flip();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    private static void writeVarInt(DataOutputStream dos, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            dos.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        dos.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream dis) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = dis.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid varint");
+    }
+}
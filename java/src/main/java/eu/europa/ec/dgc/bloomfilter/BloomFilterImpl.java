@@ -4,40 +4,99 @@ package eu.europa.ec.dgc.bloomfilter;/*
  */
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import eu.europa.ec.dgc.bloomfilter.exception.FilterExceptionsTypes;
 
 public class BloomFilterImpl implements BloomFilter, Serializable {
     private long numBits;
     private byte numberOfHashes;
-    private int currentElementAmount = 0;
+    private final LongAdder currentElementAmount = new LongAdder();
     private int definedElementAmount = 0;
     private byte usedHashFunction = 0;
+    private HashStrategy hashStrategy = HashStrategy.SHA256;
     private float probRate;
     private AtomicIntegerArray data;
+    private transient volatile boolean filledWarned;
+    private transient volatile FilterMetrics metrics;
+    // duration of a load without metrics, 0 if there is none
+    private transient long unrecordedLoadNanos;
     private final static int NUM_BITS = 8;
     private final static byte NUM_BYTES=Integer.BYTES;
     private final static byte NUM_BIT_FORMAT = (NUM_BYTES*NUM_BITS);
 
 
-    private static final long serialVersionUID = 7526472295622776147L;
-    private static final short version = 1;
+    // changed with currentElementAmount (LongAdder) and hashStrategy, older serialized filters are not compatible
+    private static final long serialVersionUID = -4378136213896641509L;
+    private static final short version = FilterFormat.VERSION_RAW;
+    private static final short ANY_VERSION = -1;
+    private static final long MAX_WORDS = Integer.MAX_VALUE;
+    // filters up to 256 KB stay in the cache, batches are looked up element by element
+    private static final int SWEEP_MIN_WORDS = 1 << 16;
+    // bits of the element number within a sweep, the bit index takes at most 37 bits
+    private static final int SWEEP_ELEMENT_BITS = 14;
+    private static final int SWEEP_BATCH = 1 << SWEEP_ELEMENT_BITS;
+    // filters of at least this many elements sum the striped counter only every 64th add of a thread
+    private static final int FILL_CHECK_MIN_ELEMENTS = 1 << 16;
+    private static final int FILL_CHECK_MASK = 63;
 
-    public BloomFilterImpl(InputStream inputStream) {
+    /**
+     * Reads a filter written by {@link #writeTo(OutputStream)} or {@link #writeCompressedTo(OutputStream)}.
+     *
+     * @throws IOException if the stream is no valid filter
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    public BloomFilterImpl(InputStream inputStream) throws IOException, FilterException {
+        super();
+        this.readFrom(inputStream);
+    }
+
+    public BloomFilterImpl(ReadableByteChannel channel) throws IOException, FilterException {
+        super();
+        this.readFrom(channel);
+    }
+
+    /**
+     * Reads a filter of the given format version from the channel.
+     *
+     * @throws IOException if the filter has another version, before its data is read
+     */
+    BloomFilterImpl(ReadableByteChannel channel, short requiredVersion) throws IOException, FilterException {
         super();
-        DataInputStream dis = new DataInputStream(inputStream);
-        this.readFromStream(dis);
+        this.read(ByteBuffer.allocateDirect(FilterFormat.CHUNK_SIZE), FilterFormat.reader(channel), requiredVersion);
     }
 
     public BloomFilterImpl(int size, byte numberOfHashes,int numberOfElements) {
+        this(size, numberOfHashes, numberOfElements, HashStrategy.SHA256);
+    }
+
+    public BloomFilterImpl(int size, byte numberOfHashes,int numberOfElements, HashStrategy hashStrategy) {
+        this((long) size, numberOfHashes, numberOfElements, hashStrategy);
+    }
+
+    /**
+     * Creates a filter of the given size in bytes. Filters can hold up to Integer.MAX_VALUE words of 4 bytes
+     * (8 GB), the maximum data length of the serialized format.
+     */
+    public BloomFilterImpl(long size, byte numberOfHashes,int numberOfElements, HashStrategy hashStrategy) {
         super();
 
+        if (hashStrategy == null) {
+            throw new IllegalArgumentException("hashStrategy cannot be null");
+        }
+
         if (numberOfHashes <= 0 || size<=0) {
             throw new IllegalArgumentException("numberOfElements <=0, numberOfHashes <= 0, probRate <= 1");
         }
@@ -46,51 +105,155 @@ public class BloomFilterImpl implements BloomFilter, Serializable {
             throw new IllegalArgumentException("numberOfHashes cannot be 0");
         }
 
-        size = (size / NUM_BYTES)+(size % NUM_BYTES);  
+        long words = roundToBlocks((size / NUM_BYTES)+(size % NUM_BYTES), hashStrategy);
+
+        if (words > MAX_WORDS) {
+            throw new IllegalArgumentException("Size too big, the filter can hold at most " + MAX_WORDS + " words");
+        }
 
         long heapFreeSize = Runtime.getRuntime().freeMemory();
 
-        if(heapFreeSize<(long)size*NUM_BYTES) {
+        if(heapFreeSize<words*NUM_BYTES) {
             throw new IllegalArgumentException("Heap size not big enough");
         }
         this.definedElementAmount = numberOfElements;
-        this.numBits = (long)size*NUM_BIT_FORMAT;
+        this.numBits = words*NUM_BIT_FORMAT;
         this.numberOfHashes = numberOfHashes;
-        this.probRate = (float) Math.pow(1 - Math.exp(-numberOfHashes / (float)( (float)(this.numBits / NUM_BITS) / numberOfElements)), numberOfHashes);
-        this.data = new AtomicIntegerArray(size);
+        this.probRate = hashStrategy == HashStrategy.SHA256_BLOCKED
+                ? (float) blockedProbRate(this.numBits, numberOfElements, numberOfHashes)
+                : (float) Math.pow(1 - Math.exp(-numberOfHashes / (float)( (float)(this.numBits / NUM_BITS) / numberOfElements)), numberOfHashes);
+        this.usedHashFunction = hashStrategy.getId();
+        this.hashStrategy = hashStrategy;
+        this.data = new AtomicIntegerArray((int) words);
     }
 
     public BloomFilterImpl(int numberOfElements, float probRate) {
+        this(numberOfElements, probRate, HashStrategy.SHA256);
+    }
+
+    public BloomFilterImpl(int numberOfElements, float probRate, HashStrategy hashStrategy) {
         super();
         if (numberOfElements <= 0  || probRate > 1 || probRate <= 0) {
             throw new IllegalArgumentException("numberOfElements <=0, probRate <= 1");
         }
-        // n: numberOfElements
-        // m: numberOfBits -> ceil((n * log(p)) / log(1 / pow(2, log(2))));
-        this.numBits = (long) (Math.ceil((numberOfElements * Math.log((double)probRate)) / Math.log(1 / Math.pow(2, Math.log(2)))));
-         
-        int bytes = (int)(this.numBits / NUM_BITS)+1;
-        int size  = (bytes / NUM_BYTES)+(bytes % NUM_BYTES);  
-        this.numBits = size * NUM_BIT_FORMAT;
+
+        if (hashStrategy == null) {
+            throw new IllegalArgumentException("hashStrategy cannot be null");
+        }
+        long words = calcWords(numberOfElements, probRate, hashStrategy);
+        this.numBits = words * NUM_BIT_FORMAT;
         long heapFreeSize = Runtime.getRuntime().freeMemory();
 
-        if (size<=0) {
+        if (words<=0) {
             throw new IllegalArgumentException("Size can not be 0");
         }
 
-        if (heapFreeSize < (long)size*NUM_BYTES) {
+        if (words > MAX_WORDS) {
+            throw new IllegalArgumentException("Size too big, the filter can hold at most " + MAX_WORDS + " words");
+        }
+
+        if (heapFreeSize < words*NUM_BYTES) {
             throw new IllegalArgumentException("Heap size not big enough");
         }
         
         this.definedElementAmount = numberOfElements;
-        this.numberOfHashes = (byte)Math.max(1, (int) Math.round((double) this.numBits / numberOfElements * Math.log(2)));
+        this.numberOfHashes = calcHashes(this.numBits, numberOfElements);
         
         if(numberOfHashes<0) {
             throw new IllegalArgumentException("Number of Hashes to high. Please check the Probalistic Rate (limit arround 1.0E-38)");
         }
         
         this.probRate = probRate;
-        this.data = new AtomicIntegerArray(size);
+        this.usedHashFunction = hashStrategy.getId();
+        this.hashStrategy = hashStrategy;
+        this.data = new AtomicIntegerArray((int) words);
+    }
+
+    /**
+     * Copies the parameters and the words of the given filter.
+     */
+    private BloomFilterImpl(BloomFilterImpl source) {
+        super();
+        this.numBits = source.numBits;
+        this.numberOfHashes = source.numberOfHashes;
+        this.currentElementAmount.add(source.currentElementAmount.sum());
+        this.definedElementAmount = source.definedElementAmount;
+        this.usedHashFunction = source.usedHashFunction;
+        this.hashStrategy = source.hashStrategy;
+        this.probRate = source.probRate;
+        AtomicIntegerArray words = new AtomicIntegerArray(source.data.length());
+        for (int i = 0; i < words.length(); i++) {
+            words.setPlain(i, source.data.get(i));
+        }
+        this.data = words;
+    }
+
+    /**
+     * Calculates the amount of 4 byte words for the given number of elements and probability rate.
+     */
+    static long calcSize(int numberOfElements, float probRate) {
+        // n: numberOfElements
+        // m: numberOfBits -> ceil((n * log(p)) / log(1 / pow(2, log(2))));
+        long bits = (long) (Math.ceil((numberOfElements * Math.log((double)probRate)) / Math.log(1 / Math.pow(2, Math.log(2)))));
+        long bytes = (bits / NUM_BITS)+1;
+        return (bytes / NUM_BYTES)+(bytes % NUM_BYTES);
+    }
+
+    /**
+     * Calculates the amount of 4 byte words of a filter with the given hash strategy. Blocked filters
+     * are enlarged until the false positive rate of their blocks is at most the probability rate.
+     */
+    static long calcWords(int numberOfElements, float probRate, HashStrategy hashStrategy) {
+        long words = roundToBlocks(calcSize(numberOfElements, probRate), hashStrategy);
+        if (hashStrategy != HashStrategy.SHA256_BLOCKED) {
+            return words;
+        }
+        while (words <= MAX_WORDS) {
+            long bits = words * NUM_BIT_FORMAT;
+            if (blockedProbRate(bits, numberOfElements, calcHashes(bits, numberOfElements)) <= probRate) {
+                break;
+            }
+            words = roundToBlocks(words + Math.max(1, words / 64), hashStrategy);
+        }
+        return words;
+    }
+
+    /**
+     * Calculates the optimal amount of hash functions for the given amount of bits and elements.
+     */
+    static byte calcHashes(long bits, int numberOfElements) {
+        return (byte) Math.max(1, (int) Math.round((double) bits / numberOfElements * Math.log(2)));
+    }
+
+    /**
+     * Calculates the false positive rate of a blocked filter. The amount of elements in a block follows
+     * a Poisson distribution, a block with j elements has 1 - (1 - 1/512)^(k * j) of its bits set.
+     */
+    static double blockedProbRate(long bits, int numberOfElements, int numberOfHashes) {
+        double blockBits = 1 << ElementHasher.BLOCK_SHIFT;
+        double perBlock = numberOfElements / Math.max(1.0, bits / blockBits);
+        double logProbability = -perBlock;
+        double rate = 0;
+        long last = (long) (perBlock + 10 * Math.sqrt(perBlock) + 10);
+        for (long j = 0; j <= last; j++) {
+            if (j > 0) {
+                logProbability += Math.log(perBlock / j);
+            }
+            double filled = 1 - Math.pow(1 - 1 / blockBits, (double) numberOfHashes * j);
+            rate += Math.exp(logProbability) * Math.pow(filled, numberOfHashes);
+        }
+        return Math.min(1, rate);
+    }
+
+    /**
+     * Rounds the amount of words up to whole blocks, if the hash strategy uses blocks.
+     */
+    static long roundToBlocks(long words, HashStrategy hashStrategy) {
+        if (hashStrategy != HashStrategy.SHA256_BLOCKED) {
+            return words;
+        }
+        long wordsPerBlock = (1L << ElementHasher.BLOCK_SHIFT) / NUM_BIT_FORMAT;
+        return (words + wordsPerBlock - 1) / wordsPerBlock * wordsPerBlock;
     }
 
     public AtomicIntegerArray getData() {
@@ -99,28 +262,213 @@ public class BloomFilterImpl implements BloomFilter, Serializable {
 
     @Override
     public void add(byte[] element) throws NoSuchAlgorithmException, FilterException, IOException {
+        this.add(element, 0, element.length);
+    }
+
+    /**
+     * Adds the element given by the range of the array, without copying it.
+     */
+    @Override
+    public void add(byte[] element, int offset, int length) throws NoSuchAlgorithmException, FilterException {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        FilterMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : metrics.startSample();
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.usedHashFunction, element, offset, length);
+        try {
+            this.add(hasher);
+        } finally {
+            hasher.release();
+        }
+        if (metrics != null) {
+            metrics.recordAdd(start);
+        }
+    }
+
+    /**
+     * Adds the bytes between position and limit of the buffer, the position is not changed.
+     * Heap and direct buffers are hashed in place.
+     */
+    @Override
+    public void add(ByteBuffer element) throws NoSuchAlgorithmException, FilterException {
+        FilterMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : metrics.startSample();
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.usedHashFunction, element);
+        try {
+            this.add(hasher);
+        } finally {
+            hasher.release();
+        }
+        if (metrics != null) {
+            metrics.recordAdd(start);
+        }
+    }
+
+    /**
+     * Adds the element the hasher was reset to. The hasher has to use the strategy of this filter.
+     */
+    void add(ElementHasher hasher) {
         for (int i = 0; i < this.numberOfHashes; i++) {
-            long index = calcIndex(element, i,this.numBits).longValue();
-            int bytepos = (int)index/NUM_BIT_FORMAT;
-            index -= bytepos * NUM_BIT_FORMAT;
-            Integer pattern = Integer.MIN_VALUE>>>index;
-            this.data.set(bytepos,this.data.get(bytepos) | pattern);
+            long index = hasher.index(i, this.numBits);
+            int bytepos = (int) (index / NUM_BIT_FORMAT);
+            // the shift only uses the lowest 5 bits of the index, the position within the word
+            int pattern = Integer.MIN_VALUE >>> index;
+            this.setBits(bytepos, pattern);
         }
-        currentElementAmount++;
-        
-        if(currentElementAmount >= definedElementAmount) {
-          Logger.getGlobal().warning("Filter is filled. All other Elements may result in a higher False Positve Rate than defined!");
+        currentElementAmount.increment();
+
+        // warn once instead of on every following add
+        if (!this.filledWarned && this.isFilled(hasher)) {
+            this.filledWarned = true;
+            Logger.getGlobal().warning("Filter is filled. All other Elements may result in a higher False Positve Rate than defined!");
+            FilterMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.recordFilled(currentElementAmount.sum(), definedElementAmount);
+            }
+        }
+    }
+
+    /**
+     * Turns off the warning about a filled filter, for filters that handle the capacity themselves.
+     */
+    void suppressFilledWarning() {
+        this.filledWarned = true;
+    }
+
+    /**
+     * @return true if the filter holds at least the amount of elements it was constructed for
+     */
+    public boolean isFilled() {
+        return this.currentElementAmount.sum() >= this.definedElementAmount;
+    }
+
+    /**
+     * {@link #isFilled()} on the schedule of the filled warning: small filters are checked on every call,
+     * filters of at least {@link #FILL_CHECK_MIN_ELEMENTS} elements only on every 64th add of the thread
+     * and report false otherwise.
+     */
+    boolean isFilled(ElementHasher hasher) {
+        return (this.definedElementAmount < FILL_CHECK_MIN_ELEMENTS || (hasher.nextAdd() & FILL_CHECK_MASK) == 0)
+                && this.isFilled();
+    }
+
+    /**
+     * Sets the bits of the pattern in the given word without losing bits of concurrent adds.
+     * Words which already contain the pattern are not written at all.
+     */
+    private void setBits(int word, int pattern) {
+        int current = this.data.get(word);
+        while ((current & pattern) != pattern) {
+            if (this.data.compareAndSet(word, current, current | pattern)) {
+                return;
+            }
+            current = this.data.get(word);
         }
     }
 
     @Override
     public boolean mightContain(byte[] element) throws NoSuchAlgorithmException, FilterException, IOException {
+        return this.mightContain(element, 0, element.length);
+    }
+
+    /**
+     * Looks up the element given by the range of the array, without copying it.
+     */
+    @Override
+    public boolean mightContain(byte[] element, int offset, int length) throws NoSuchAlgorithmException, FilterException {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        FilterMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : metrics.startSample();
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.usedHashFunction, element, offset, length);
+        boolean result;
+        try {
+            result = this.mightContain(hasher);
+        } finally {
+            hasher.release();
+        }
+        if (metrics != null) {
+            metrics.recordLookup(start, result);
+        }
+        return result;
+    }
+
+    /**
+     * Looks up the bytes between position and limit of the buffer, the position is not changed.
+     * Heap and direct buffers are hashed in place.
+     */
+    @Override
+    public boolean mightContain(ByteBuffer element) throws NoSuchAlgorithmException, FilterException {
+        FilterMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : metrics.startSample();
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.usedHashFunction, element);
+        boolean result;
+        try {
+            result = this.mightContain(hasher);
+        } finally {
+            hasher.release();
+        }
+        if (metrics != null) {
+            metrics.recordLookup(start, result);
+        }
+        return result;
+    }
+
+    /**
+     * Looks up a batch of elements. For filters larger than the cache, the bit indexes of the whole batch
+     * are calculated first and sorted, then the words are read in address order. Indexes of elements
+     * which already missed a bit are skipped.
+     */
+    @Override
+    public void mightContainAll(byte[][] elements, boolean[] out) throws NoSuchAlgorithmException, FilterException {
+        if (out.length < elements.length) {
+            throw new IllegalArgumentException("out shorter than elements");
+        }
+        if (this.data.length() < SWEEP_MIN_WORDS || elements.length < 2) {
+            for (int e = 0; e < elements.length; e++) {
+                ElementHasher hasher = this.hasher(elements[e]);
+                out[e] = this.mightContain(hasher);
+                hasher.release();
+            }
+        } else {
+            long[] probes = new long[Math.min(elements.length, SWEEP_BATCH) * this.numberOfHashes];
+            for (int from = 0; from < elements.length; from += SWEEP_BATCH) {
+                this.sweep(elements, from, Math.min(elements.length, from + SWEEP_BATCH), probes, out);
+            }
+        }
+        FilterMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.recordLookups(elements.length, out);
+        }
+    }
+
+    private void sweep(byte[][] elements, int from, int to, long[] probes, boolean[] out)
+            throws NoSuchAlgorithmException, FilterException {
+        int count = 0;
+        for (int e = from; e < to; e++) {
+            ElementHasher hasher = this.hasher(elements[e]);
+            for (int i = 0; i < this.numberOfHashes; i++) {
+                probes[count++] = hasher.index(i, this.numBits) << SWEEP_ELEMENT_BITS | (e - from);
+            }
+            hasher.release();
+            out[e] = true;
+        }
+        Arrays.sort(probes, 0, count);
+        for (int p = 0; p < count; p++) {
+            int e = from + (int) (probes[p] & (SWEEP_BATCH - 1));
+            if (out[e] && !this.isBitSet(probes[p] >>> SWEEP_ELEMENT_BITS)) {
+                out[e] = false;
+            }
+        }
+    }
+
+    /**
+     * Looks up the element the hasher was reset to. The hasher has to use the strategy of this filter.
+     */
+    boolean mightContain(ElementHasher hasher) {
         boolean result = true;
         for (int i = 0; i < this.numberOfHashes; i++) {
-            long index = calcIndex(element, i,this.numBits).longValue();
-            int bytepos = (int)index/NUM_BIT_FORMAT;
-            index -= bytepos * NUM_BIT_FORMAT;
-            long pattern = Integer.MIN_VALUE>>>index;
+            long index = hasher.index(i, this.numBits);
+            int bytepos = (int) (index / NUM_BIT_FORMAT);
+            int pattern = Integer.MIN_VALUE >>> index;
             if ((this.data.get(bytepos) & pattern) == pattern) {
                  result&=true;
             }
@@ -132,6 +480,21 @@ public class BloomFilterImpl implements BloomFilter, Serializable {
         return result;
     }
 
+    /**
+     * @return true if the bit at the index is set
+     */
+    boolean isBitSet(long index) {
+        return (this.data.get((int) (index / NUM_BIT_FORMAT)) & (Integer.MIN_VALUE >>> index)) != 0;
+    }
+
+    private ElementHasher hasher(byte[] element) throws FilterException, NoSuchAlgorithmException {
+        return ElementHasher.get(this.hashStrategy, this.usedHashFunction, element, 0, element.length);
+    }
+
+    /**
+     * Reference implementation of the index calculation for {@link HashStrategy#SHA256}.
+     * The filter itself uses an allocation free variant giving the same results.
+     */
     public static BigInteger calcIndex(byte[] element, int i, long bits) throws NoSuchAlgorithmException, IOException {
         var hash = hash(element, (char) i);
         BigInteger bi = new BigInteger(hash);
@@ -148,68 +511,268 @@ public class BloomFilterImpl implements BloomFilter, Serializable {
         return md.digest(outputStream.toByteArray());
     }
 
+    public static byte[] hash(byte[] toHash) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        return md.digest(toHash);
+    }
+
+    /**
+     * Derives the index of round i from a single digest by double hashing:
+     * (h1 + i * h2) mod bits, where h1 and h2 are the first two big endian longs
+     * of the digest and the sum is taken unsigned with 64 bit overflow.
+     */
+    public static long calcDoubleHashIndex(byte[] digest, int i, long bits) {
+        return ElementHasher.doubleHashIndex(ElementHasher.readLong(digest, 0),
+                ElementHasher.readLong(digest, Long.BYTES), i, bits);
+    }
+
+    /**
+     * Derives the index of round i from a single digest for {@link HashStrategy#SHA256_BLOCKED}:
+     * block h1 mod (bits / 512), position in the block the 9 bit slice i mod 7 of h2, h3 and
+     * fmix64(h2 + j * h3) for round i / 7 = 0, 1 and j >= 2.
+     */
+    public static long calcBlockedIndex(byte[] digest, int i, long bits) {
+        return ElementHasher.blockedIndex(ElementHasher.readLong(digest, 0),
+                ElementHasher.readLong(digest, Long.BYTES), ElementHasher.readLong(digest, 2 * Long.BYTES), i, bits);
+    }
+
+
+    //region Set operations
+
+    /**
+     * Adds all elements of the other filter to this filter (bitwise or), e.g. to merge filters built
+     * on separate workers. The current element amount becomes the sum of both, an upper bound
+     * if both filters contain the same elements.
+     *
+     * @param other filter with the same m, k and hash function
+     * @throws FilterException if the filters differ in m, k or hash function
+     */
+    public void union(BloomFilterImpl other) throws FilterException {
+        this.checkCompatible(other);
+        WordTask.apply(this.data, other.data, (word, otherWord) -> word | otherWord);
+        this.currentElementAmount.add(other.currentElementAmount.sum());
+    }
+
+    /**
+     * Keeps only the bits set in both filters (bitwise and). Lookups of elements contained in both filters
+     * stay positive, the false positive rate is at most the one of the union. The current element amount
+     * becomes the minimum of both.
+     *
+     * @param other filter with the same m, k and hash function
+     * @throws FilterException if the filters differ in m, k or hash function
+     */
+    public void intersect(BloomFilterImpl other) throws FilterException {
+        this.checkCompatible(other);
+        WordTask.apply(this.data, other.data, (word, otherWord) -> word & otherWord);
+        long amount = Math.min(this.currentElementAmount.sum(), other.currentElementAmount.sum());
+        this.currentElementAmount.reset();
+        this.currentElementAmount.add(amount);
+    }
+
+    /**
+     * @return a new filter containing the elements of both filters, see {@link #union(BloomFilterImpl)}
+     * @throws FilterException if the filters differ in m, k or hash function
+     */
+    public static BloomFilterImpl unionOf(BloomFilterImpl first, BloomFilterImpl second) throws FilterException {
+        first.checkCompatible(second);
+        BloomFilterImpl result = new BloomFilterImpl(first);
+        result.union(second);
+        return result;
+    }
+
+    /**
+     * @return a new filter with the bits set in both filters, see {@link #intersect(BloomFilterImpl)}
+     * @throws FilterException if the filters differ in m, k or hash function
+     */
+    public static BloomFilterImpl intersectionOf(BloomFilterImpl first, BloomFilterImpl second)
+            throws FilterException {
+        first.checkCompatible(second);
+        BloomFilterImpl result = new BloomFilterImpl(first);
+        result.intersect(second);
+        return result;
+    }
+
+    private void checkCompatible(BloomFilterImpl other) throws FilterException {
+        if (this.data.length() != other.data.length() || this.numberOfHashes != other.numberOfHashes
+                || this.usedHashFunction != other.usedHashFunction) {
+            throw new FilterException("Filters differ in m, k or hash function", FilterExceptionsTypes.INVALID_PARAM);
+        }
+    }
+    //endregion
 
     //region Streams
 
     /**
-     * Writes the filter to an output stream in a structured manner
-     * 0 byte -> k (numberOfHashes)
-     * 1 - 4 byte -> p (probRate)
-     * 5 byte -> unsigned length of the data
-     * 6 - x byte -> data as utf8
+     * Writes the filter to an output stream in a structured manner (big endian)
+     * 0 - 1 byte -> version
+     * 2 byte -> k (numberOfHashes)
+     * 3 byte -> used hash function
+     * 4 - 7 byte -> p (probRate)
+     * 8 - 11 byte -> n (definedElementAmount)
+     * 12 - 15 byte -> current element amount
+     * 16 - 19 byte -> length of the data in 4 byte words
+     * 20 - x byte -> data
      *
      * @param outputStream
      * @throws IOException
      */
     public void writeTo(OutputStream outputStream) throws FilterException, IOException {
-        // k = 1 (numberOfHashes), p = 4 (probRate),
-        // 0 = k, 1 = p, 5 = filter
-        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
-        dataOutputStream.writeShort(version);
-        dataOutputStream.writeByte(this.numberOfHashes);
-        dataOutputStream.writeByte(usedHashFunction);
-        dataOutputStream.writeFloat(this.probRate);
-        dataOutputStream.writeInt(this.definedElementAmount);
-        dataOutputStream.writeInt(this.currentElementAmount);
-        dataOutputStream.writeInt(this.getData().length());        
-        for (int i = 0; i < this.getData().length(); i++) {
-            dataOutputStream.writeInt(this.getData().get(i));
+        this.write(this.header(), ByteBuffer.allocate(FilterFormat.CHUNK_SIZE), FilterFormat.writer(outputStream));
+    }
+
+    /**
+     * Writes the filter to a channel in the same format as {@link #writeTo(OutputStream)}.
+     *
+     * @param channel
+     * @throws IOException
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        this.write(this.header(), ByteBuffer.allocateDirect(FilterFormat.CHUNK_SIZE), FilterFormat.writer(channel));
+    }
+
+    /**
+     * Writes the filter in version 2 of the format: the header of {@link #writeTo(OutputStream)} with version 2,
+     * followed by the words as one deflate stream (RFC 1951 in zlib wrapper, RFC 1950).
+     * Sparse filters shrink considerably, filters filled up to n hardly compress.
+     *
+     * @param outputStream
+     * @throws IOException
+     */
+    public void writeCompressedTo(OutputStream outputStream) throws IOException {
+        this.write(this.header(FilterFormat.VERSION_DEFLATE), ByteBuffer.allocate(FilterFormat.CHUNK_SIZE),
+                FilterFormat.writer(outputStream));
+    }
+
+    /**
+     * Writes the filter to a channel in the same format as {@link #writeCompressedTo(OutputStream)}.
+     *
+     * @param channel
+     * @throws IOException
+     */
+    public void writeCompressedTo(WritableByteChannel channel) throws IOException {
+        this.write(this.header(FilterFormat.VERSION_DEFLATE), ByteBuffer.allocate(FilterFormat.CHUNK_SIZE),
+                FilterFormat.writer(channel));
+    }
+
+    private void write(FilterHeader header, ByteBuffer buffer, FilterFormat.ChunkWriter writer) throws IOException {
+        Object event = FilterEvents.begin(FilterOperation.SERIALIZE);
+        long start = System.nanoTime();
+        FilterFormat.write(header, this.data::get, buffer, writer);
+        FilterMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.sample(FilterOperation.SERIALIZE, System.nanoTime() - start);
         }
+        FilterEvents.commit(event, (long) header.dataLength * NUM_BYTES, header.version);
+    }
 
+    private FilterHeader header() {
+        return this.header(version);
     }
 
-    private void readFromStream(DataInputStream dis) {
-        try {
-            int version = dis.readShort(); // for later compatibility
-            this.numberOfHashes = dis.readByte();
-            this.usedHashFunction = dis.readByte();
-            this.probRate = dis.readFloat();
-            this.definedElementAmount = dis.readInt();
-            this.currentElementAmount = dis.readInt();
-            int dataLength = dis.readInt();
-            int[] data = new int[dataLength];
-            for (int i = 0; i < dataLength; i++) {
-                data[i] = dis.readInt();
-            }
-            this.data = new AtomicIntegerArray(data);
-            this.numBits = data.length * NUM_BIT_FORMAT;
-        } catch (IOException e) {
-            e.printStackTrace();
+    private FilterHeader header(short version) {
+        FilterHeader header = new FilterHeader();
+        header.version = version;
+        header.numberOfHashes = this.numberOfHashes;
+        header.usedHashFunction = this.usedHashFunction;
+        header.probRate = this.probRate;
+        header.definedElementAmount = this.definedElementAmount;
+        header.currentElementAmount = this.getCurrentElementAmount();
+        header.dataLength = this.data.length();
+        return header;
+    }
+
+    private void read(ByteBuffer buffer, FilterFormat.ChunkReader reader) throws IOException, FilterException {
+        this.read(buffer, reader, ANY_VERSION);
+    }
+
+    private void read(ByteBuffer buffer, FilterFormat.ChunkReader reader, short requiredVersion)
+            throws IOException, FilterException {
+        Object event = FilterEvents.begin(FilterOperation.LOAD);
+        long start = System.nanoTime();
+        FilterHeader header = FilterFormat.readHeader(buffer, reader);
+        if (requiredVersion != ANY_VERSION && header.version != requiredVersion) {
+            throw new IOException("Unexpected filter version " + header.version + ", expected " + requiredVersion);
+        }
+        HashStrategy strategy = HashStrategy.get(header.usedHashFunction)
+                .orElseThrow(() -> unknownHashFunction(header.usedHashFunction));
+        this.numberOfHashes = header.numberOfHashes;
+        this.usedHashFunction = header.usedHashFunction;
+        this.hashStrategy = strategy;
+        this.probRate = header.probRate;
+        this.definedElementAmount = header.definedElementAmount;
+        this.currentElementAmount.reset();
+        this.currentElementAmount.add(header.currentElementAmount);
+        this.filledWarned = false;
+
+        // the words are copied chunk by chunk straight into the array, safe publication of the filter
+        // is up to the caller as for all other fields
+        AtomicIntegerArray words = new AtomicIntegerArray(header.dataLength);
+        long[] bits = new long[1];
+        FilterFormat.readWords(header, (index, value) -> {
+            words.setPlain(index, value);
+            bits[0] += Integer.bitCount(value);
+        }, buffer, reader);
+        this.data = words;
+        this.numBits = (long) header.dataLength * NUM_BIT_FORMAT;
+        if (this.numBits > 0 && this.numberOfHashes > 0 && !this.isConsistent(bits[0])) {
+            Logger.getGlobal().warning("Filter header disagrees with its bits: " + header.currentElementAmount
+                    + " elements, estimated " + Math.round(this.estimateCardinality(bits[0])));
         }
+
+        long loadNanos = System.nanoTime() - start;
+        FilterMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.sample(FilterOperation.LOAD, loadNanos);
+        } else {
+            // recorded once metrics are set, filters read by a constructor have none yet
+            this.unrecordedLoadNanos = Math.max(1, loadNanos);
+        }
+        FilterEvents.commit(event, (long) header.dataLength * NUM_BYTES, header.version);
     }
 
     /**
-     * Will try to read data from the input stream to constrcut a new bloomFilter from
-     * * 0 byte -> k (numberOfHashes)
-     * * 1 - 4 byte -> p (probRate)
-     * * 5 - x byte -> data as utf8
+     * Will try to read data from the input stream to constrcut a new bloomFilter from.
+     * The format is described in {@link #writeTo(OutputStream)}, compressed filters of
+     * {@link #writeCompressedTo(OutputStream)} are inflated while reading.
      *
      * @param inputStream
+     * @throws IOException if the stream is no valid filter, the filter is not changed
+     * @throws FilterException if the filter uses an unknown hash function
+     *     ({@link FilterExceptionsTypes#NO_SUCH_ALGO}), the filter is not changed
+     */
+    @Override
+    public void readFrom(InputStream inputStream) throws IOException, FilterException {
+        this.read(ByteBuffer.allocate(FilterFormat.CHUNK_SIZE), FilterFormat.reader(inputStream));
+    }
+
+    /**
+     * Reads the filter from a channel, the format is described in {@link #writeTo(OutputStream)}.
+     *
+     * @param channel
      * @throws IOException
+     * @throws FilterException if the filter uses an unknown hash function
+     *     ({@link FilterExceptionsTypes#NO_SUCH_ALGO}), the filter is not changed
      */
-    public void readFrom(InputStream inputStream) {
-        DataInputStream dataInputStream = new DataInputStream(inputStream);
-        this.readFromStream(dataInputStream);
+    public void readFrom(ReadableByteChannel channel) throws IOException, FilterException {
+        this.read(ByteBuffer.allocateDirect(FilterFormat.CHUNK_SIZE), FilterFormat.reader(channel));
+    }
+
+    static FilterException unknownHashFunction(byte usedHashFunction) {
+        return new FilterException("Unknown hash function " + usedHashFunction, FilterExceptionsTypes.NO_SUCH_ALGO);
+    }
+
+    /**
+     * Creates an immutable snapshot of the filter, for lookups only.
+     * Elements which are added concurrently may or may not be part of the snapshot.
+     *
+     * @return the snapshot
+     */
+    public ImmutableBloomFilter freeze() {
+        int[] words = new int[this.data.length()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = this.data.get(i);
+        }
+        return new ImmutableBloomFilter(this.header(), words);
     }
     //endregion
 
@@ -283,4 +846,125 @@ public class BloomFilterImpl implements BloomFilter, Serializable {
         return this.definedElementAmount;
     }
 
+    /**
+     * @return the hash strategy of the filter
+     */
+    public HashStrategy getHashStrategy() {
+        return this.hashStrategy;
+    }
+
+    /**
+     * @return the amount of elements added to the filter
+     */
+    public int getCurrentElementAmount() {
+        return (int) Math.min(this.currentElementAmount.sum(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the amount of set bits, counted over all words. Large filters are counted in parallel
+     *     on the common fork join pool.
+     */
+    public long bitCount() {
+        AtomicIntegerArray words = this.data;
+        int chunks = (words.length() + WordTask.THRESHOLD - 1) / WordTask.THRESHOLD;
+        IntStream ranges = IntStream.range(0, chunks);
+        if (chunks > 1) {
+            ranges = ranges.parallel();
+        }
+        return ranges.mapToLong(chunk -> {
+            int end = (int) Math.min(words.length(), (long) (chunk + 1) * WordTask.THRESHOLD);
+            long bits = 0;
+            for (int i = chunk * WordTask.THRESHOLD; i < end; i++) {
+                bits += Integer.bitCount(words.get(i));
+            }
+            return bits;
+        }).sum();
+    }
+
+    /**
+     * Estimates the amount of distinct elements from the set bits X: -m / k * ln(1 - X / m).
+     * Unlike the current element amount, the estimate is not affected by duplicates or merged filters.
+     *
+     * @return the estimated amount of elements, infinity if all bits are set
+     */
+    public double estimateCardinality() {
+        return estimateCardinality(this.bitCount());
+    }
+
+    private double estimateCardinality(long bits) {
+        return -(double) this.numBits / this.numberOfHashes * Math.log1p(-(double) bits / this.numBits);
+    }
+
+    /**
+     * @return the current false positive rate, (X / m) ^ k for X set bits. Unlike {@link #getP()}
+     *     it grows with every element added.
+     */
+    public double estimateFalsePositiveRate() {
+        return Math.pow(this.getFillRatio(), this.numberOfHashes);
+    }
+
+    /**
+     * Checks whether the header matches the bits: the estimated cardinality must not clearly exceed
+     * the current element amount, which counts duplicates and can only be higher. Filters read with a
+     * header that disagrees are logged as warning.
+     *
+     * @return false if the filter bits contradict the current element amount
+     */
+    public boolean isConsistent() {
+        return this.isConsistent(this.bitCount());
+    }
+
+    private boolean isConsistent(long bits) {
+        long amount = this.currentElementAmount.sum();
+        if (amount > 0 && bits == 0) {
+            return false;
+        }
+        // tolerance for the variance of the estimate
+        return this.estimateCardinality(bits) <= amount * 1.1 + 10;
+    }
+
+    /**
+     * @return the share of set bits. Lookups of elements not contained are positive with
+     *     about fill ratio ^ k, so a ratio well above 0.5 indicates a saturated filter.
+     */
+    public double getFillRatio() {
+        return (double) this.bitCount() / this.numBits;
+    }
+
+    /**
+     * Enables the metrics of the filter, null disables them.
+     * The same metrics can be shared by several filters. The duration of the last load is recorded,
+     * if the filter was read without metrics, e.g. by a constructor.
+     */
+    public void setMetrics(FilterMetrics metrics) {
+        this.metrics = metrics;
+        long loadNanos = this.unrecordedLoadNanos;
+        if (metrics != null && loadNanos > 0) {
+            this.unrecordedLoadNanos = 0;
+            metrics.sample(FilterOperation.LOAD, loadNanos);
+        }
+    }
+
+    /**
+     * @return the metrics of the filter or null, if they are disabled
+     */
+    public FilterMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    byte getUsedHashFunction() {
+        return this.usedHashFunction;
+    }
+
+    /**
+     * Takes over the header values of another version of the filter, e.g. after a delta was applied.
+     */
+    void setHeader(float probRate, int definedElementAmount, int currentElementAmount) {
+        this.probRate = probRate;
+        this.definedElementAmount = definedElementAmount;
+        this.currentElementAmount.reset();
+        this.currentElementAmount.add(currentElementAmount);
+        this.filledWarned = false;
+    }
+
 }
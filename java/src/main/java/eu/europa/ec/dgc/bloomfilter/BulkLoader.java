@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Adds large amounts of elements to a filter in parallel. Files are memory mapped chunk by chunk,
+ * the chunks are hashed and inserted on the threads of a fork join pool. Setting bits is order
+ * independent, so the filter is bit identical to one built by calling {@link BloomFilterImpl#add(byte[])}
+ * for every record.
+ */
+public final class BulkLoader {
+    /** Bytes per chunk of a file, processed by one task. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 26;
+    /** Maximum length of a line of {@link #addLines(Path)}. */
+    public static final int MAX_LINE_LENGTH = 1 << 16;
+    private static final int STREAM_REPORT_INTERVAL = 1 << 16;
+
+    /**
+     * Receives the progress of a load, called from the loading threads.
+     */
+    public interface ProgressListener {
+        /**
+         * @param records amount of records added so far
+         * @param elapsedNanos time since the load was started, records / elapsedNanos is the throughput
+         */
+        void onProgress(long records, long elapsedNanos);
+    }
+
+    private final BloomFilterImpl filter;
+    private final ForkJoinPool pool;
+    private final ProgressListener listener;
+    private final int chunkSize;
+
+    public BulkLoader(BloomFilterImpl filter) {
+        this(filter, ForkJoinPool.commonPool(), null);
+    }
+
+    /**
+     * @param filter filter to add the records to
+     * @param pool pool running the tasks, its parallelism defines the amount of threads
+     * @param listener progress listener or null
+     */
+    public BulkLoader(BloomFilterImpl filter, ForkJoinPool pool, ProgressListener listener) {
+        this(filter, pool, listener, DEFAULT_CHUNK_SIZE);
+    }
+
+    BulkLoader(BloomFilterImpl filter, ForkJoinPool pool, ProgressListener listener, int chunkSize) {
+        if (filter == null || pool == null) {
+            throw new IllegalArgumentException("filter and pool cannot be null");
+        }
+        this.filter = filter;
+        this.pool = pool;
+        this.listener = listener;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Adds every record of a file of fixed length records, e.g. hashes.
+     *
+     * @param path file of records without separators
+     * @param recordLength length of each record in bytes
+     * @return the amount of added records
+     * @throws IOException if the file can not be read or its size is no multiple of the record length
+     */
+    public long addRecords(Path path, int recordLength) throws IOException, FilterException, NoSuchAlgorithmException {
+        if (recordLength <= 0) {
+            throw new IllegalArgumentException("recordLength must be positive");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % recordLength != 0) {
+                throw new IOException("File size " + size + " is no multiple of the record length " + recordLength);
+            }
+            long chunkBytes = Math.max(1, this.chunkSize / recordLength) * (long) recordLength;
+            Progress progress = new Progress();
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (long start = 0; start < size; start += chunkBytes) {
+                long from = start;
+                long length = Math.min(chunkBytes, size - start);
+                tasks.add(() -> {
+                    MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+                    byte[] record = new byte[recordLength];
+                    int records = 0;
+                    while (chunk.hasRemaining()) {
+                        chunk.get(record);
+                        this.filter.add(record, 0, recordLength);
+                        records++;
+                    }
+                    progress.add(records);
+                    return null;
+                });
+            }
+            this.run(tasks);
+            return progress.records.sum();
+        }
+    }
+
+    /**
+     * Adds every line of a file as record, without line separator (\n or \r\n). Empty lines are skipped.
+     *
+     * @param path file of records separated by new lines
+     * @return the amount of added records
+     * @throws IOException if the file can not be read or a line is longer than {@link #MAX_LINE_LENGTH}
+     */
+    public long addLines(Path path) throws IOException, FilterException, NoSuchAlgorithmException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Progress progress = new Progress();
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (long start = 0; start < size; start += this.chunkSize) {
+                long from = start;
+                long to = Math.min(size, start + this.chunkSize);
+                tasks.add(() -> {
+                    progress.add(this.addLines(channel, from, to, size));
+                    return null;
+                });
+            }
+            this.run(tasks);
+            return progress.records.sum();
+        }
+    }
+
+    /**
+     * Adds the lines starting within [from, to). The mapping starts one byte early to see whether
+     * a line starts at from, and reaches beyond to for the last line.
+     */
+    private int addLines(FileChannel channel, long from, long to, long size)
+            throws IOException, FilterException, NoSuchAlgorithmException {
+        long mapStart = Math.max(0, from - 1);
+        long mapEnd = Math.min(size, to + MAX_LINE_LENGTH + 2);
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int end = (int) (to - mapStart);
+        int position = (int) (from - mapStart);
+        if (from > 0 && chunk.get(0) != '\n') {
+            // the line starting before from belongs to the previous chunk
+            while (position < chunk.limit() && chunk.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+
+        byte[] line = new byte[MAX_LINE_LENGTH];
+        int records = 0;
+        while (position < end) {
+            int length = 0;
+            while (position < chunk.limit() && chunk.get(position) != '\n') {
+                if (length == MAX_LINE_LENGTH) {
+                    throw new IOException("Line longer than " + MAX_LINE_LENGTH + " bytes at " + (mapStart + position));
+                }
+                line[length++] = chunk.get(position++);
+            }
+            position++;
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                this.filter.add(line, 0, length);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Adds every element of the stream. The stream is processed in parallel on the pool of the loader.
+     *
+     * @return the amount of added elements
+     */
+    public long addAll(Stream<byte[]> elements) throws FilterException, NoSuchAlgorithmException {
+        Progress progress = new Progress();
+        Future<?> result = this.pool.submit(() -> elements.parallel().forEach(element -> {
+            try {
+                this.filter.add(element, 0, element.length);
+            } catch (FilterException | NoSuchAlgorithmException e) {
+                throw new LoadException(e);
+            }
+            progress.increment();
+        }));
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof LoadException ? e.getCause().getCause() : e.getCause();
+            rethrow(cause);
+        }
+        progress.report();
+        return progress.records.sum();
+    }
+
+    private void run(List<Callable<Void>> tasks) throws IOException, FilterException, NoSuchAlgorithmException {
+        for (Future<Void> future : this.pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                rethrow(cause);
+            }
+        }
+    }
+
+    private static void rethrow(Throwable cause) throws FilterException, NoSuchAlgorithmException {
+        if (cause instanceof FilterException) {
+            throw (FilterException) cause;
+        }
+        if (cause instanceof NoSuchAlgorithmException) {
+            throw (NoSuchAlgorithmException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    /**
+     * Counts the added records and reports them to the listener. Streams count every element, so the
+     * counter is striped and each thread reports after {@link #STREAM_REPORT_INTERVAL} of its own elements.
+     * Totals reported during the load are approximate, the final report is exact.
+     */
+    private final class Progress {
+        private final long start = System.nanoTime();
+        private final LongAdder records = new LongAdder();
+        // elements of the current thread since its last report
+        private final ThreadLocal<int[]> unreported = ThreadLocal.withInitial(() -> new int[1]);
+
+        void add(int amount) {
+            this.records.add(amount);
+            this.report();
+        }
+
+        void increment() {
+            this.records.increment();
+            if (listener != null) {
+                int[] count = this.unreported.get();
+                if (++count[0] == STREAM_REPORT_INTERVAL) {
+                    count[0] = 0;
+                    this.report();
+                }
+            }
+        }
+
+        void report() {
+            if (listener != null) {
+                listener.onProgress(this.records.sum(), System.nanoTime() - this.start);
+            }
+        }
+    }
+
+    /**
+     * Carries checked exceptions out of the stream.
+     */
+    private static final class LoadException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LoadException(Exception cause) {
+            super(cause);
+        }
+    }
+}
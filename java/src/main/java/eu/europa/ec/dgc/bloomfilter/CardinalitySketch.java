@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+/**
+ * HyperLogLog sketch estimating the amount of distinct elements from a uniformly distributed
+ * 64 bit hash per element. The upper bits of the hash select one of 2^precision registers, each
+ * register keeps the maximum position of the first set bit of the remaining bits.
+ * Small cardinalities are estimated by linear counting.
+ */
+final class CardinalitySketch {
+    static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    CardinalitySketch() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision amount of hash bits selecting the register, between 7 and 18
+     */
+    CardinalitySketch(int precision) {
+        if (precision < 7 || precision > 18) {
+            throw new IllegalArgumentException("precision not between 7 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    void add(long hash) {
+        int register = (int) (hash >>> (Long.SIZE - this.precision));
+        // the marker bit bounds the rank if all remaining bits are 0
+        long remaining = (hash << this.precision) | (1L << (this.precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > this.registers[register]) {
+            this.registers[register] = rank;
+        }
+    }
+
+    /**
+     * @return the estimated amount of distinct hashes added
+     */
+    double estimate() {
+        int m = this.registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte rank : this.registers) {
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            return m * Math.log((double) m / zeros);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the relative standard error of the estimate
+     */
+    double getStandardError() {
+        return 1.04 / Math.sqrt(this.registers.length);
+    }
+}
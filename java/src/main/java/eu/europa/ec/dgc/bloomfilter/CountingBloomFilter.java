@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counting bloom filter, supports removing elements. Every bit of the plain filter is replaced by a
+ * 4 bit counter, 16 counters are packed into one long. Counters are updated lock free with compare and set.
+ * A counter reaching 15 saturates and is never decremented again, so removing can not produce false
+ * negatives. The filter takes four times the memory of a plain filter with the same parameters.
+ *
+ * <p>Use {@link #toBloomFilter()} to distribute the filter as plain filter. The counters are serialized
+ * in the filter format with version 3, the data length counts 4 byte words of counters (8 counters per
+ * word), counter i in bits (i mod 8) * 4 of word i / 8, starting at the lowest bits.</p>
+ */
+public class CountingBloomFilter implements BloomFilter {
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_LONG = Long.SIZE / COUNTER_BITS;
+    private static final int COUNTER_MAX = (1 << COUNTER_BITS) - 1;
+    private static final int NUM_BIT_FORMAT = Integer.SIZE;
+    // the serialized data length in words has to fit into an int
+    private static final long MAX_COUNTERS = (long) Integer.MAX_VALUE / 4 * COUNTERS_PER_LONG;
+
+    private long numCounters;
+    private byte numberOfHashes;
+    private HashStrategy hashStrategy;
+    private float probRate;
+    private int definedElementAmount;
+    private final LongAdder currentElementAmount = new LongAdder();
+    private AtomicLongArray counters;
+
+    public CountingBloomFilter(int numberOfElements, float probRate) {
+        this(numberOfElements, probRate, HashStrategy.SHA256);
+    }
+
+    /**
+     * Creates a filter with the size and k of {@link BloomFilterImpl#BloomFilterImpl(int, float, HashStrategy)}.
+     */
+    public CountingBloomFilter(int numberOfElements, float probRate, HashStrategy hashStrategy) {
+        if (numberOfElements <= 0 || probRate >= 1 || probRate <= 0) {
+            throw new IllegalArgumentException("numberOfElements <=0, probRate not between 0 and 1");
+        }
+        if (hashStrategy == null) {
+            throw new IllegalArgumentException("hashStrategy cannot be null");
+        }
+        long words = BloomFilterImpl.calcWords(numberOfElements, probRate, hashStrategy);
+        long size = words * NUM_BIT_FORMAT;
+        if (size > MAX_COUNTERS) {
+            throw new IllegalArgumentException("Size too big, the filter can hold at most " + MAX_COUNTERS + " counters");
+        }
+        this.numCounters = size;
+        this.numberOfHashes = BloomFilterImpl.calcHashes(size, numberOfElements);
+        if (this.numberOfHashes < 0) {
+            throw new IllegalArgumentException("Number of Hashes to high. Please check the Probalistic Rate");
+        }
+        this.hashStrategy = hashStrategy;
+        this.probRate = probRate;
+        this.definedElementAmount = numberOfElements;
+        this.counters = new AtomicLongArray((int) (size / COUNTERS_PER_LONG));
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(OutputStream)}.
+     *
+     * @throws IOException if the stream is no valid counting filter
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    public CountingBloomFilter(InputStream inputStream) throws IOException, FilterException {
+        this.read(inputStream);
+    }
+
+    @Override
+    public void add(byte[] element) throws NoSuchAlgorithmException, FilterException {
+        ElementHasher hasher = this.hasher(element);
+        try {
+            for (int i = 0; i < this.numberOfHashes; i++) {
+                this.increment(hasher.index(i, this.numCounters));
+            }
+        } finally {
+            hasher.release();
+        }
+        this.currentElementAmount.increment();
+    }
+
+    /**
+     * Removes an element that was added before. Removing an element that was never added
+     * can remove other elements, if the lookup of the element was a false positive.
+     *
+     * @return false if the element was not contained, nothing was changed then
+     */
+    public boolean remove(byte[] element) throws NoSuchAlgorithmException, FilterException {
+        ElementHasher hasher = this.hasher(element);
+        try {
+            if (!this.mightContain(hasher)) {
+                return false;
+            }
+            for (int i = 0; i < this.numberOfHashes; i++) {
+                this.decrement(hasher.index(i, this.numCounters));
+            }
+        } finally {
+            hasher.release();
+        }
+        this.currentElementAmount.decrement();
+        return true;
+    }
+
+    @Override
+    public boolean mightContain(byte[] element) throws NoSuchAlgorithmException, FilterException {
+        ElementHasher hasher = this.hasher(element);
+        try {
+            return this.mightContain(hasher);
+        } finally {
+            hasher.release();
+        }
+    }
+
+    private boolean mightContain(ElementHasher hasher) {
+        for (int i = 0; i < this.numberOfHashes; i++) {
+            if (this.count(hasher.index(i, this.numCounters)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ElementHasher hasher(byte[] element) throws FilterException, NoSuchAlgorithmException {
+        return ElementHasher.get(this.hashStrategy, this.hashStrategy.getId(), element, 0, element.length);
+    }
+
+    private int count(long counter) {
+        long word = this.counters.get((int) (counter / COUNTERS_PER_LONG));
+        return (int) (word >>> shift(counter)) & COUNTER_MAX;
+    }
+
+    private void increment(long counter) {
+        int index = (int) (counter / COUNTERS_PER_LONG);
+        int shift = shift(counter);
+        long current = this.counters.get(index);
+        while (((current >>> shift) & COUNTER_MAX) != COUNTER_MAX) {
+            if (this.counters.compareAndSet(index, current, current + (1L << shift))) {
+                return;
+            }
+            current = this.counters.get(index);
+        }
+    }
+
+    private void decrement(long counter) {
+        int index = (int) (counter / COUNTERS_PER_LONG);
+        int shift = shift(counter);
+        long current = this.counters.get(index);
+        while (true) {
+            long count = (current >>> shift) & COUNTER_MAX;
+            // saturated counters may count more elements than they can hold
+            if (count == 0 || count == COUNTER_MAX) {
+                return;
+            }
+            if (this.counters.compareAndSet(index, current, current - (1L << shift))) {
+                return;
+            }
+            current = this.counters.get(index);
+        }
+    }
+
+    private static int shift(long counter) {
+        return (int) (counter % COUNTERS_PER_LONG) * COUNTER_BITS;
+    }
+
+    /**
+     * Creates a plain filter with a bit set for every counter above 0. The result equals a
+     * {@link BloomFilterImpl} of the same parameters to which the contained elements were added.
+     *
+     * @return version 1 filter for distribution
+     */
+    public BloomFilterImpl toBloomFilter() {
+        BloomFilterImpl filter = new BloomFilterImpl(this.numCounters / Byte.SIZE, this.numberOfHashes,
+                this.definedElementAmount, this.hashStrategy);
+        AtomicIntegerArray data = filter.getData();
+        for (int word = 0; word < data.length(); word++) {
+            int bits = 0;
+            for (int half = 0; half < 2; half++) {
+                long counterWord = this.counters.get(word * 2 + half);
+                for (int c = 0; c < COUNTERS_PER_LONG; c++) {
+                    if (((counterWord >>> (c * COUNTER_BITS)) & COUNTER_MAX) != 0) {
+                        bits |= Integer.MIN_VALUE >>> (half * COUNTERS_PER_LONG + c);
+                    }
+                }
+            }
+            data.setPlain(word, bits);
+        }
+        filter.setHeader(this.probRate, this.definedElementAmount, this.getCurrentElementAmount());
+        return filter;
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(OutputStream)}. The filter is not changed if the
+     * stream can not be read.
+     *
+     * @throws IOException if the stream is no valid counting filter
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    @Override
+    public void readFrom(InputStream inputStream) throws IOException, FilterException {
+        this.read(inputStream);
+    }
+
+    private void read(InputStream inputStream) throws IOException, FilterException {
+        ByteBuffer buffer = ByteBuffer.allocate(FilterFormat.CHUNK_SIZE);
+        FilterFormat.ChunkReader reader = FilterFormat.reader(inputStream);
+        FilterHeader header = FilterFormat.readHeader(buffer, reader);
+        if (header.version != FilterFormat.VERSION_COUNTING) {
+            throw new IOException("Unsupported counting filter version " + header.version);
+        }
+        if (header.dataLength < 0 || header.dataLength % 2 != 0) {
+            throw new IOException("Invalid data length " + header.dataLength);
+        }
+        HashStrategy strategy = HashStrategy.get(header.usedHashFunction)
+                .orElseThrow(() -> BloomFilterImpl.unknownHashFunction(header.usedHashFunction));
+
+        AtomicLongArray words = new AtomicLongArray(header.dataLength / 2);
+        FilterFormat.readWords(header.dataLength, (index, value) -> {
+            long word = words.get(index / 2);
+            long half = Integer.toUnsignedLong(value);
+            words.setPlain(index / 2, index % 2 == 0 ? word | half : word | half << Integer.SIZE);
+        }, buffer, reader);
+
+        this.numberOfHashes = header.numberOfHashes;
+        this.hashStrategy = strategy;
+        this.probRate = header.probRate;
+        this.definedElementAmount = header.definedElementAmount;
+        this.currentElementAmount.reset();
+        this.currentElementAmount.add(header.currentElementAmount);
+        this.counters = words;
+        this.numCounters = (long) words.length() * COUNTERS_PER_LONG;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        FilterHeader header = new FilterHeader();
+        header.version = FilterFormat.VERSION_COUNTING;
+        header.numberOfHashes = this.numberOfHashes;
+        header.usedHashFunction = this.hashStrategy.getId();
+        header.probRate = this.probRate;
+        header.definedElementAmount = this.definedElementAmount;
+        header.currentElementAmount = this.getCurrentElementAmount();
+        header.dataLength = this.counters.length() * 2;
+
+        ByteBuffer buffer = ByteBuffer.allocate(FilterFormat.CHUNK_SIZE);
+        header.writeTo(buffer);
+        FilterFormat.writeWords(header.dataLength, index -> {
+            long word = this.counters.get(index / 2);
+            return (int) (index % 2 == 0 ? word : word >>> Integer.SIZE);
+        }, buffer, FilterFormat.writer(outputStream));
+    }
+
+    @Override
+    public float getP() {
+        return this.probRate;
+    }
+
+    @Override
+    public int getK() {
+        return this.numberOfHashes;
+    }
+
+    /**
+     * @return the amount of counters, the amount of bits of the plain filter
+     */
+    @Override
+    public long getM() {
+        return this.numCounters;
+    }
+
+    @Override
+    public int getN() {
+        return this.definedElementAmount;
+    }
+
+    /**
+     * @return the amount of added minus the amount of removed elements
+     */
+    public int getCurrentElementAmount() {
+        return (int) Math.max(0, Math.min(this.currentElementAmount.sum(), Integer.MAX_VALUE));
+    }
+
+    public HashStrategy getHashStrategy() {
+        return this.hashStrategy;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import eu.europa.ec.dgc.bloomfilter.exception.FilterExceptionsTypes;
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Allocation free calculation of the bit indexes of an element.
+ * Gives exactly the same indexes as {@link BloomFilterImpl#calcIndex(byte[], int, long)},
+ * {@link BloomFilterImpl#calcDoubleHashIndex(byte[], int, long)} and
+ * {@link BloomFilterImpl#calcBlockedIndex(byte[], int, long)} and the indexes of the
+ * non-cryptographic strategies (see {@link FastHash}), but reuses the digest
+ * and buffers of the current thread. Use {@link #get()} followed by {@link #reset} for
+ * every element, then ask for the index of every round. The digests of {@link HashStrategy#SHA256}
+ * are kept per round until the next reset, so probing several filters hashes every round only once.
+ * {@link HashStrategy#SHA256} needs the element for every round, so the hasher refers to it until
+ * {@link #release()}, which callers invoke when the lookup is done. The other strategies hash the element
+ * once in {@link #reset} and keep no reference to it.
+ */
+final class ElementHasher {
+    private static final ThreadLocal<ElementHasher> HASHERS = new ThreadLocal<>();
+    private static final int DIGEST_LENGTH = 32;
+    /** Blocks of the blocked strategy have 2^9 = 512 bits, 16 words or one cache line. */
+    static final int BLOCK_SHIFT = 9;
+    private static final int SLICES_PER_WORD = Long.SIZE / BLOCK_SHIFT;
+
+    private final MessageDigest sha256;
+    private final byte[] digest = new byte[DIGEST_LENGTH];
+    private final long[] murmur = new long[2];
+    // word indexes and masks of the rounds of the current element, see probes
+    final int[] probeWords = new int[Byte.MAX_VALUE + 1];
+    final int[] probeMasks = new int[Byte.MAX_VALUE + 1];
+    // digests of the rounds of the current element, k is a positive byte
+    private final byte[][] roundDigests = new byte[Byte.MAX_VALUE + 1][];
+    private int digestedRounds;
+    // bytes of a buffer without array on the way into the digest
+    private final byte[] chunk = new byte[DIGEST_LENGTH * 2];
+    private HashStrategy strategy;
+    // the element of SHA256 until release, either an array or a buffer without array
+    private byte[] element;
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    private long h1;
+    private long h2;
+    private long h3;
+    // adds of the current thread, see BloomFilterImpl#add(ElementHasher)
+    private int adds;
+
+    private ElementHasher() throws NoSuchAlgorithmException {
+        this.sha256 = MessageDigest.getInstance("SHA-256");
+    }
+
+    /**
+     * @return the hasher of the current thread
+     */
+    static ElementHasher get() throws NoSuchAlgorithmException {
+        ElementHasher hasher = HASHERS.get();
+        if (hasher == null) {
+            hasher = new ElementHasher();
+            HASHERS.set(hasher);
+        }
+        return hasher;
+    }
+
+    /**
+     * @return the hasher of the current thread, reset to the given element
+     * @throws FilterException if the strategy is null, because the filter uses an unknown hash function
+     */
+    static ElementHasher get(HashStrategy strategy, byte usedHashFunction, byte[] element, int offset, int length)
+            throws FilterException, NoSuchAlgorithmException {
+        checkStrategy(strategy, usedHashFunction);
+        return get().reset(strategy, element, offset, length);
+    }
+
+    /**
+     * Resets the hasher of the current thread to the bytes between position and limit, the position
+     * is not changed. All buffers are hashed in place: heap buffers through their array, other buffers
+     * with absolute reads. The SHA-256 digests read them in chunks of 64 bytes, the element is never
+     * copied as a whole.
+     */
+    static ElementHasher get(HashStrategy strategy, byte usedHashFunction, ByteBuffer element)
+            throws FilterException, NoSuchAlgorithmException {
+        checkStrategy(strategy, usedHashFunction);
+        ElementHasher hasher = get();
+        int length = element.remaining();
+        if (element.hasArray()) {
+            return hasher.reset(strategy, element.array(), element.arrayOffset() + element.position(), length);
+        }
+        return hasher.reset(strategy, element, element.position(), length);
+    }
+
+    private static void checkStrategy(HashStrategy strategy, byte usedHashFunction) throws FilterException {
+        if (strategy == null) {
+            throw new FilterException("Unknown hash function " + usedHashFunction, FilterExceptionsTypes.NO_SUCH_ALGO);
+        }
+    }
+
+    ElementHasher reset(HashStrategy strategy, byte[] element, int offset, int length) {
+        this.strategy = strategy;
+        this.element = strategy == HashStrategy.SHA256 ? element : null;
+        this.buffer = null;
+        this.offset = offset;
+        this.length = length;
+        this.digestedRounds = 0;
+        if (strategy == HashStrategy.MURMUR3_128) {
+            FastHash.murmur3(element, offset, length, 0, this.murmur);
+            this.h1 = this.murmur[0];
+            this.h2 = this.murmur[1];
+        } else if (strategy == HashStrategy.XXHASH64) {
+            this.h1 = FastHash.xxHash64(element, offset, length, 0);
+            this.h2 = FastHash.xxHash64(element, offset, length, 1);
+        } else if (strategy != HashStrategy.SHA256) {
+            this.sha256.update(element, offset, length);
+            this.finishDigest();
+            this.h1 = readLong(this.digest, 0);
+            this.h2 = readLong(this.digest, Long.BYTES);
+            this.h3 = readLong(this.digest, 2 * Long.BYTES);
+        }
+        return this;
+    }
+
+    private ElementHasher reset(HashStrategy strategy, ByteBuffer element, int offset, int length) {
+        this.strategy = strategy;
+        this.element = null;
+        this.buffer = strategy == HashStrategy.SHA256 ? element : null;
+        this.offset = offset;
+        this.length = length;
+        this.digestedRounds = 0;
+        if (strategy == HashStrategy.MURMUR3_128) {
+            FastHash.murmur3(element, offset, length, 0, this.murmur);
+            this.h1 = this.murmur[0];
+            this.h2 = this.murmur[1];
+        } else if (strategy == HashStrategy.XXHASH64) {
+            this.h1 = FastHash.xxHash64(element, offset, length, 0);
+            this.h2 = FastHash.xxHash64(element, offset, length, 1);
+        } else if (strategy != HashStrategy.SHA256) {
+            this.update(element, offset, length);
+            this.finishDigest();
+            this.h1 = readLong(this.digest, 0);
+            this.h2 = readLong(this.digest, Long.BYTES);
+            this.h3 = readLong(this.digest, 2 * Long.BYTES);
+        }
+        return this;
+    }
+
+    /**
+     * Drops the reference to the element, so the hasher of the thread does not keep the array or buffer
+     * of the caller reachable. Indexes of further rounds can not be calculated for {@link HashStrategy#SHA256}
+     * afterwards, until the next reset.
+     */
+    void release() {
+        this.element = null;
+        this.buffer = null;
+    }
+
+    /**
+     * Feeds the bytes of the buffer to the digest with absolute reads, the position of the buffer is not
+     * changed, so threads may share a buffer.
+     */
+    private void update(ByteBuffer element, int offset, int length) {
+        int end = offset + length;
+        for (int position = offset; position < end; position += this.chunk.length) {
+            int size = Math.min(this.chunk.length, end - position);
+            for (int b = 0; b < size; b++) {
+                this.chunk[b] = element.get(position + b);
+            }
+            this.sha256.update(this.chunk, 0, size);
+        }
+    }
+
+    /**
+     * Resets the hasher to the hash values of an element, as calculated by {@link #reset} before.
+     * Only for strategies hashing once per element.
+     */
+    ElementHasher reset(HashStrategy strategy, long h1, long h2, long h3) {
+        if (strategy == HashStrategy.SHA256) {
+            throw new IllegalArgumentException("SHA256 hashes every round");
+        }
+        this.strategy = strategy;
+        this.release();
+        this.digestedRounds = 0;
+        this.h1 = h1;
+        this.h2 = h2;
+        this.h3 = h3;
+        return this;
+    }
+
+    long getH1() {
+        return this.h1;
+    }
+
+    long getH2() {
+        return this.h2;
+    }
+
+    long getH3() {
+        return this.h3;
+    }
+
+    /**
+     * @return the number of adds of the current thread before this one
+     */
+    int nextAdd() {
+        return this.adds++;
+    }
+
+    /**
+     * @return the index of the given round in a filter with the given amount of bits
+     */
+    long index(int round, long bits) {
+        if (this.strategy == HashStrategy.SHA256_BLOCKED) {
+            return blockedIndex(this.h1, this.h2, this.h3, round, bits);
+        }
+        if (this.strategy != HashStrategy.SHA256) {
+            return doubleHashIndex(this.h1, this.h2, round, bits);
+        }
+        while (this.digestedRounds <= round) {
+            int next = this.digestedRounds++;
+            if (this.roundDigests[next] == null) {
+                this.roundDigests[next] = new byte[DIGEST_LENGTH];
+            }
+            if (this.buffer != null) {
+                this.update(this.buffer, this.offset, this.length);
+            } else {
+                this.sha256.update(this.element, this.offset, this.length);
+            }
+            this.sha256.update((byte) next);
+            this.finishDigest(this.roundDigests[next]);
+        }
+        return signedMod(this.roundDigests[round], bits);
+    }
+
+    /**
+     * Stores the word index and the bit mask within the word of the first rounds in
+     * {@link #probeWords} and {@link #probeMasks}, for filters of 32 bit words. The probes are
+     * padded as required by {@link ProbeKernel#allSet(int[], int[], int[], int)}.
+     */
+    void probes(int rounds, long bits) {
+        int i = 0;
+        for (; i < rounds; i++) {
+            long index = this.index(i, bits);
+            this.probeWords[i] = (int) (index / Integer.SIZE);
+            this.probeMasks[i] = Integer.MIN_VALUE >>> index;
+        }
+        for (; i % ProbeKernel.PADDING != 0; i++) {
+            this.probeWords[i] = 0;
+            this.probeMasks[i] = 0;
+        }
+    }
+
+    private void finishDigest() {
+        this.finishDigest(this.digest);
+    }
+
+    private void finishDigest(byte[] target) {
+        try {
+            this.sha256.digest(target, 0, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static long doubleHashIndex(long h1, long h2, int round, long bits) {
+        return Long.remainderUnsigned(h1 + round * h2, bits);
+    }
+
+    /**
+     * Positions within a block are independent 9 bit slices: round i uses slice i mod 7 of the word
+     * i / 7, the words are h2, h3 and fmix64(h2 + j * h3) from j = 2 on. Positions derived from
+     * one linear combination of h2 and h3 per round are correlated between rounds and raise the
+     * false positive rate well above the one of a blocked filter.
+     */
+    static long blockedIndex(long h1, long h2, long h3, int round, long bits) {
+        long blocks = bits >>> BLOCK_SHIFT;
+        if (blocks == 0) {
+            return doubleHashIndex(h2, h3, round, bits);
+        }
+        long block = Long.remainderUnsigned(h1, blocks);
+        int word = round / SLICES_PER_WORD;
+        long slices = word == 0 ? h2 : word == 1 ? h3 : FastHash.fmix64(h2 + word * h3);
+        long position = (slices >>> (round % SLICES_PER_WORD * BLOCK_SHIFT)) & ((1 << BLOCK_SHIFT) - 1);
+        return (block << BLOCK_SHIFT) + position;
+    }
+
+    static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int b = 0; b < Long.BYTES; b++) {
+            value = (value << 8) | (bytes[offset + b] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Calculates value mod bits like {@code new BigInteger(value).mod(BigInteger.valueOf(bits))},
+     * with value as signed big endian two's complement number.
+     * The value is reduced chunk by chunk (Horner's method). The chunk size is chosen so that
+     * remainder * 2^chunk bits can not overflow a long.
+     */
+    static long signedMod(byte[] value, long bits) {
+        int chunkBytes;
+        if (bits <= (1L << 31)) {
+            chunkBytes = 4;
+        } else if (bits <= (1L << 47)) {
+            chunkBytes = 2;
+        } else if (bits <= (1L << 55)) {
+            chunkBytes = 1;
+        } else {
+            throw new IllegalArgumentException("Number of bits too high: " + bits);
+        }
+        int chunkBits = chunkBytes * 8;
+        int first = value.length % chunkBytes == 0 ? chunkBytes : value.length % chunkBytes;
+
+        // the first byte carries the sign
+        long remainder = value[0];
+        for (int b = 1; b < first; b++) {
+            remainder = (remainder << 8) | (value[b] & 0xFF);
+        }
+        remainder = Math.floorMod(remainder, bits);
+
+        for (int pos = first; pos < value.length; pos += chunkBytes) {
+            long chunk = 0;
+            for (int b = 0; b < chunkBytes; b++) {
+                chunk = (chunk << 8) | (value[pos + b] & 0xFF);
+            }
+            remainder = ((remainder << chunkBits) | chunk) % bits;
+        }
+        return remainder;
+    }
+}
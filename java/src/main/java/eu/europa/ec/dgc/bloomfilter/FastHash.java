@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Allocation free non-cryptographic hash functions of {@link HashStrategy#MURMUR3_128}
+ * and {@link HashStrategy#XXHASH64}, following the reference implementations
+ * (MurmurHash3_x64_128 of SMHasher, XXH64 of xxHash). Input words are read little endian.
+ * The variants for buffers read with absolute indexes, independent of the byte order of the buffer,
+ * so direct buffers are hashed in place.
+ */
+final class FastHash {
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONG_LE =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_INT_LE =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long MURMUR_C1 = 0x87c37b91114253d5L;
+    private static final long MURMUR_C2 = 0x4cf5ad432745937fL;
+
+    private static final long XXH_PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long XXH_PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long XXH_PRIME3 = 0x165667B19E3779F9L;
+    private static final long XXH_PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long XXH_PRIME5 = 0x27D4EB2F165667C5L;
+
+    private FastHash() {
+    }
+
+    /**
+     * MurmurHash3_x64_128 of the bytes, the two 64 bit halves h1 and h2 are stored in result[0] and result[1].
+     */
+    static void murmur3(byte[] data, int offset, int length, long seed, long[] result) {
+        long h1 = seed;
+        long h2 = seed;
+        int end = offset + length;
+        int position = offset;
+        for (; position + 16 <= end; position += 16) {
+            h1 = murmurH1(h1, h2, (long) LONG_LE.get(data, position));
+            h2 = murmurH2(h2, h1, (long) LONG_LE.get(data, position + 8));
+        }
+        int remaining = end - position;
+        long k1 = littleEndian(data, position, Math.min(remaining, 8));
+        long k2 = remaining > 8 ? littleEndian(data, position + 8, remaining - 8) : 0;
+        murmurFinish(h1, h2, k1, k2, length, result);
+    }
+
+    /**
+     * MurmurHash3_x64_128 of the bytes of the buffer from offset on, like
+     * {@link #murmur3(byte[], int, int, long, long[])}. The position of the buffer is not used.
+     */
+    static void murmur3(ByteBuffer data, int offset, int length, long seed, long[] result) {
+        long h1 = seed;
+        long h2 = seed;
+        int end = offset + length;
+        int position = offset;
+        for (; position + 16 <= end; position += 16) {
+            h1 = murmurH1(h1, h2, (long) BUFFER_LONG_LE.get(data, position));
+            h2 = murmurH2(h2, h1, (long) BUFFER_LONG_LE.get(data, position + 8));
+        }
+        int remaining = end - position;
+        long k1 = littleEndian(data, position, Math.min(remaining, 8));
+        long k2 = remaining > 8 ? littleEndian(data, position + 8, remaining - 8) : 0;
+        murmurFinish(h1, h2, k1, k2, length, result);
+    }
+
+    private static long murmurH1(long h1, long h2, long k1) {
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27) + h2;
+        return h1 * 5 + 0x52dce729;
+    }
+
+    private static long murmurH2(long h2, long h1, long k2) {
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31) + h1;
+        return h2 * 5 + 0x38495ab5;
+    }
+
+    /**
+     * Mixes in the tail words k1 and k2 of the last incomplete block, missing bytes are 0, and finalizes.
+     */
+    private static void murmurFinish(long h1, long h2, long k1, long k2, int length, long[] result) {
+        // mixing a zero word changes nothing, as for an empty tail in the reference implementation
+        h2 ^= mixK2(k2);
+        h1 ^= mixK1(k1);
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        result[0] = h1;
+        result[1] = h2;
+    }
+
+    private static long mixK1(long k1) {
+        return Long.rotateLeft(k1 * MURMUR_C1, 31) * MURMUR_C2;
+    }
+
+    private static long mixK2(long k2) {
+        return Long.rotateLeft(k2 * MURMUR_C2, 33) * MURMUR_C1;
+    }
+
+    static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * @return up to 8 bytes as little endian number
+     */
+    private static long littleEndian(byte[] data, int offset, int length) {
+        long value = 0;
+        for (int b = length - 1; b >= 0; b--) {
+            value = (value << 8) | (data[offset + b] & 0xFF);
+        }
+        return value;
+    }
+
+    private static long littleEndian(ByteBuffer data, int offset, int length) {
+        long value = 0;
+        for (int b = length - 1; b >= 0; b--) {
+            value = (value << 8) | (data.get(offset + b) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * @return XXH64 of the bytes
+     */
+    static long xxHash64(byte[] data, int offset, int length, long seed) {
+        int end = offset + length;
+        int position = offset;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + XXH_PRIME1 + XXH_PRIME2;
+            long v2 = seed + XXH_PRIME2;
+            long v3 = seed;
+            long v4 = seed - XXH_PRIME1;
+            for (; position + 32 <= end; position += 32) {
+                v1 = xxRound(v1, (long) LONG_LE.get(data, position));
+                v2 = xxRound(v2, (long) LONG_LE.get(data, position + 8));
+                v3 = xxRound(v3, (long) LONG_LE.get(data, position + 16));
+                v4 = xxRound(v4, (long) LONG_LE.get(data, position + 24));
+            }
+            hash = xxConverge(v1, v2, v3, v4);
+        } else {
+            hash = seed + XXH_PRIME5;
+        }
+        hash += length;
+        for (; position + 8 <= end; position += 8) {
+            hash = xxLong(hash, (long) LONG_LE.get(data, position));
+        }
+        if (position + 4 <= end) {
+            hash = xxInt(hash, (int) INT_LE.get(data, position));
+            position += 4;
+        }
+        for (; position < end; position++) {
+            hash = xxByte(hash, data[position]);
+        }
+        return xxAvalanche(hash);
+    }
+
+    /**
+     * @return XXH64 of the bytes of the buffer from offset on, like {@link #xxHash64(byte[], int, int, long)}.
+     *     The position of the buffer is not used.
+     */
+    static long xxHash64(ByteBuffer data, int offset, int length, long seed) {
+        int end = offset + length;
+        int position = offset;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + XXH_PRIME1 + XXH_PRIME2;
+            long v2 = seed + XXH_PRIME2;
+            long v3 = seed;
+            long v4 = seed - XXH_PRIME1;
+            for (; position + 32 <= end; position += 32) {
+                v1 = xxRound(v1, (long) BUFFER_LONG_LE.get(data, position));
+                v2 = xxRound(v2, (long) BUFFER_LONG_LE.get(data, position + 8));
+                v3 = xxRound(v3, (long) BUFFER_LONG_LE.get(data, position + 16));
+                v4 = xxRound(v4, (long) BUFFER_LONG_LE.get(data, position + 24));
+            }
+            hash = xxConverge(v1, v2, v3, v4);
+        } else {
+            hash = seed + XXH_PRIME5;
+        }
+        hash += length;
+        for (; position + 8 <= end; position += 8) {
+            hash = xxLong(hash, (long) BUFFER_LONG_LE.get(data, position));
+        }
+        if (position + 4 <= end) {
+            hash = xxInt(hash, (int) BUFFER_INT_LE.get(data, position));
+            position += 4;
+        }
+        for (; position < end; position++) {
+            hash = xxByte(hash, data.get(position));
+        }
+        return xxAvalanche(hash);
+    }
+
+    private static long xxRound(long acc, long input) {
+        return Long.rotateLeft(acc + input * XXH_PRIME2, 31) * XXH_PRIME1;
+    }
+
+    private static long xxMerge(long hash, long value) {
+        return (hash ^ xxRound(0, value)) * XXH_PRIME1 + XXH_PRIME4;
+    }
+
+    private static long xxConverge(long v1, long v2, long v3, long v4) {
+        long hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        hash = xxMerge(hash, v1);
+        hash = xxMerge(hash, v2);
+        hash = xxMerge(hash, v3);
+        return xxMerge(hash, v4);
+    }
+
+    private static long xxLong(long hash, long input) {
+        return Long.rotateLeft(hash ^ xxRound(0, input), 27) * XXH_PRIME1 + XXH_PRIME4;
+    }
+
+    private static long xxInt(long hash, int input) {
+        return Long.rotateLeft(hash ^ Integer.toUnsignedLong(input) * XXH_PRIME1, 23) * XXH_PRIME2 + XXH_PRIME3;
+    }
+
+    private static long xxByte(long hash, byte input) {
+        return Long.rotateLeft(hash ^ (input & 0xFF) * XXH_PRIME5, 11) * XXH_PRIME1;
+    }
+
+    private static long xxAvalanche(long hash) {
+        hash ^= hash >>> 33;
+        hash *= XXH_PRIME2;
+        hash ^= hash >>> 29;
+        hash *= XXH_PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Builds a filter from elements of unknown amount, sized for the given false positive rate.
+ * Every element is hashed once while it is added. The hash values go into a HyperLogLog sketch,
+ * which estimates the amount of distinct elements, and are spilled to a temporary file.
+ * {@link #build()} sizes the filter for the estimate plus three standard errors and sets the bits
+ * from the spilled hash values, mapping the file chunk by chunk.
+ *
+ * <p>Only strategies hashing once per element are supported, {@link HashStrategy#SHA256} digests
+ * every round. A builder is not thread safe and builds one filter.</p>
+ */
+public final class FilterBuilder implements Closeable {
+    /** Spilled bytes per element, the hash values h1, h2 and h3. */
+    private static final int RECORD_SIZE = 3 * Long.BYTES;
+    private static final int WRITE_BUFFER_SIZE = RECORD_SIZE * 2730;
+    static final int DEFAULT_CHUNK_SIZE = RECORD_SIZE * (1 << 22);
+
+    private final float probRate;
+    private final HashStrategy hashStrategy;
+    private final CardinalitySketch sketch = new CardinalitySketch();
+    private final FileChannel spill;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final int chunkSize;
+    private long count;
+    private boolean built;
+
+    public FilterBuilder(float probRate) throws IOException {
+        this(probRate, HashStrategy.SHA256_DOUBLE_HASHING, null);
+    }
+
+    /**
+     * @param probRate false positive rate of the filter
+     * @param hashStrategy strategy of the filter, hashing once per element
+     * @param tempDirectory directory of the spill file, null for the default temporary directory
+     * @throws IOException if the spill file can not be created
+     */
+    public FilterBuilder(float probRate, HashStrategy hashStrategy, Path tempDirectory) throws IOException {
+        this(probRate, hashStrategy, tempDirectory, DEFAULT_CHUNK_SIZE);
+    }
+
+    FilterBuilder(float probRate, HashStrategy hashStrategy, Path tempDirectory, int chunkSize) throws IOException {
+        if (probRate <= 0 || probRate >= 1) {
+            throw new IllegalArgumentException("probRate not between 0 and 1");
+        }
+        if (hashStrategy == null || hashStrategy == HashStrategy.SHA256) {
+            throw new IllegalArgumentException("hashStrategy must hash once per element");
+        }
+        if (chunkSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("chunkSize smaller than a record");
+        }
+        this.probRate = probRate;
+        this.hashStrategy = hashStrategy;
+        this.chunkSize = chunkSize / RECORD_SIZE * RECORD_SIZE;
+        Path spillFile = tempDirectory == null ? Files.createTempFile("bloomfilter", ".spill")
+                : Files.createTempFile(tempDirectory, "bloomfilter", ".spill");
+        this.spill = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    public void add(byte[] element) throws NoSuchAlgorithmException, FilterException, IOException {
+        this.add(element, 0, element.length);
+    }
+
+    /**
+     * Adds the element given by the range of the array.
+     */
+    public void add(byte[] element, int offset, int length) throws NoSuchAlgorithmException, FilterException, IOException {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        this.add(ElementHasher.get(this.hashStrategy, this.hashStrategy.getId(), element, offset, length));
+    }
+
+    /**
+     * Adds the bytes between position and limit of the buffer, the position is not changed.
+     */
+    public void add(ByteBuffer element) throws NoSuchAlgorithmException, FilterException, IOException {
+        this.add(ElementHasher.get(this.hashStrategy, this.hashStrategy.getId(), element));
+    }
+
+    private void add(ElementHasher hasher) throws IOException {
+        if (this.built) {
+            throw new IllegalStateException("Filter already built");
+        }
+        this.sketch.add(hasher.getH1());
+        if (this.buffer.remaining() < RECORD_SIZE) {
+            this.flush();
+        }
+        this.buffer.putLong(hasher.getH1()).putLong(hasher.getH2()).putLong(hasher.getH3());
+        this.count++;
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.spill.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Sizes the filter and sets the bits of all added elements, the spill file is deleted afterwards.
+     * The current element amount of the filter is the estimated amount of distinct elements.
+     *
+     * @return the filter
+     * @throws IOException if the spill file can not be read
+     */
+    public BloomFilterImpl build() throws IOException {
+        if (this.built) {
+            throw new IllegalStateException("Filter already built");
+        }
+        this.built = true;
+        this.flush();
+        long distinct = Math.min(this.count, Math.round(this.sketch.estimate()));
+        long capacity = (long) Math.ceil(distinct * (1 + 3 * this.sketch.getStandardError()));
+        int numberOfElements = (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.min(capacity, this.count)));
+        BloomFilterImpl filter = new BloomFilterImpl(numberOfElements, this.probRate, this.hashStrategy);
+        filter.suppressFilledWarning();
+
+        try {
+            ElementHasher hasher = ElementHasher.get();
+            long size = this.count * RECORD_SIZE;
+            for (long start = 0; start < size; start += this.chunkSize) {
+                MappedByteBuffer chunk = this.spill.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(this.chunkSize, size - start));
+                while (chunk.hasRemaining()) {
+                    filter.add(hasher.reset(this.hashStrategy, chunk.getLong(), chunk.getLong(), chunk.getLong()));
+                }
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            this.close();
+        }
+        filter.setHeader(this.probRate, numberOfElements, (int) Math.min(distinct, Integer.MAX_VALUE));
+        return filter;
+    }
+
+    /**
+     * @return the amount of added elements, including duplicates
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return the estimated amount of distinct elements added so far
+     */
+    public double estimateCardinality() {
+        return this.sketch.estimate();
+    }
+
+    /**
+     * Deletes the spill file, the builder can not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        this.built = true;
+        this.spill.close();
+    }
+}
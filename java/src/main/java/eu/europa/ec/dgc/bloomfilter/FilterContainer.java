@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+/**
+ * Serialization of filters made of several segments, in big endian:
+ * container version (2 byte), container type (1 byte), the parameters of the type,
+ * amount of segments (4 byte) and every segment in version 1 of the filter format
+ * (see {@link BloomFilterImpl#writeTo(java.io.OutputStream)}).
+ */
+final class FilterContainer {
+    static final short VERSION = 1;
+    static final byte TYPE_SCALABLE = 1;
+    static final byte TYPE_GENERATIONAL = 2;
+
+    private FilterContainer() {
+    }
+
+    static void writeHeader(DataOutputStream dos, byte type) throws IOException {
+        dos.writeShort(VERSION);
+        dos.writeByte(type);
+    }
+
+    /**
+     * @throws IOException if the stream does not start with a container of the given type
+     */
+    static void readHeader(DataInputStream dis, byte type) throws IOException {
+        short version = dis.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported container version " + version);
+        }
+        byte readType = dis.readByte();
+        if (readType != type) {
+            throw new IOException("Unexpected container type " + readType + ", expected " + type);
+        }
+    }
+
+    static void writeSegments(DataOutputStream dos, BloomFilterImpl[] segments) throws IOException {
+        dos.writeInt(segments.length);
+        for (BloomFilterImpl segment : segments) {
+            try {
+                segment.writeTo(dos);
+            } catch (FilterException e) {
+                throw new IOException(e);
+            }
+        }
+        dos.flush();
+    }
+
+    /**
+     * @throws IOException if the segments are invalid or not in version 1 of the filter format
+     * @throws FilterException if a segment uses an unknown hash function
+     */
+    static BloomFilterImpl[] readSegments(DataInputStream dis) throws IOException, FilterException {
+        int count = dis.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid amount of segments " + count);
+        }
+        BloomFilterImpl[] segments = new BloomFilterImpl[count];
+        for (int i = 0; i < count; i++) {
+            // only uncompressed segments end exactly at the next one, the inflater reads ahead
+            segments[i] = new BloomFilterImpl(Channels.newChannel(dis), FilterFormat.VERSION_RAW);
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of the filters. Loads and serializations are recorded as duration events,
+ * lookups only if sampled by {@link FilterMetrics}, as instant events carrying the duration.
+ *
+ * <p>The methods of this class take and return no jdk.jfr types, the event classes are only loaded if the
+ * jdk.jfr module is part of the runtime. Setting the system property {@value #DISABLE_PROPERTY} to true
+ * turns the events off.</p>
+ */
+final class FilterEvents {
+    static final String DISABLE_PROPERTY = "eu.europa.ec.dgc.bloomfilter.disableJfr";
+    private static final boolean ENABLED = !Boolean.getBoolean(DISABLE_PROPERTY)
+            && ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    private FilterEvents() {
+    }
+
+    /**
+     * Starts the event of a load or serialization.
+     *
+     * @return the started event, null if events are disabled
+     */
+    static Object begin(FilterOperation operation) {
+        return ENABLED ? Recorder.begin(operation) : null;
+    }
+
+    /**
+     * Commits an event of {@link #begin(FilterOperation)}, if it is recorded.
+     */
+    static void commit(Object event, long bytes, short version) {
+        if (event != null) {
+            Recorder.commit(event, bytes, version);
+        }
+    }
+
+    static void lookup(long nanos, boolean positive) {
+        if (ENABLED) {
+            Recorder.lookup(nanos, positive);
+        }
+    }
+
+    /**
+     * All code using jdk.jfr, loaded on the first event.
+     */
+    private static final class Recorder {
+
+        private Recorder() {
+        }
+
+        static Object begin(FilterOperation operation) {
+            Event event = operation == FilterOperation.LOAD ? new Load() : new Serialize();
+            event.begin();
+            return event;
+        }
+
+        static void commit(Object started, long bytes, short version) {
+            Event event = (Event) started;
+            if (!event.shouldCommit()) {
+                return;
+            }
+            if (event instanceof Load) {
+                ((Load) event).bytes = bytes;
+                ((Load) event).version = version;
+            } else {
+                ((Serialize) event).bytes = bytes;
+                ((Serialize) event).version = version;
+            }
+            event.commit();
+        }
+
+        static void lookup(long nanos, boolean positive) {
+            Lookup event = new Lookup();
+            if (event.shouldCommit()) {
+                event.duration = nanos;
+                event.positive = positive;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("eu.europa.ec.dgc.bloomfilter.Load")
+    @Label("Bloom Filter Load")
+    @Category("Bloom Filter")
+    static final class Load extends Event {
+        @Label("Data Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Version")
+        short version;
+    }
+
+    @Name("eu.europa.ec.dgc.bloomfilter.Serialize")
+    @Label("Bloom Filter Serialize")
+    @Category("Bloom Filter")
+    static final class Serialize extends Event {
+        @Label("Data Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Version")
+        short version;
+    }
+
+    @Name("eu.europa.ec.dgc.bloomfilter.Lookup")
+    @Label("Bloom Filter Lookup")
+    @Category("Bloom Filter")
+    static final class Lookup extends Event {
+        @Label("Lookup Duration")
+        @Timespan
+        long duration;
+
+        @Label("Positive")
+        boolean positive;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Chunk wise reading and writing of the serialized filter, see {@link FilterHeader} for the header.
+ * The words follow the header as big endian 4 byte values, in version 2 as one deflate stream.
+ */
+final class FilterFormat {
+    static final int CHUNK_SIZE = 1 << 16;
+    static final short VERSION_RAW = 1;
+    static final short VERSION_DEFLATE = 2;
+    /** Counters of {@link CountingBloomFilter}, not readable as plain filter. */
+    static final short VERSION_COUNTING = 3;
+
+    private FilterFormat() {
+    }
+
+    interface ChunkWriter {
+        void write(ByteBuffer buffer) throws IOException;
+    }
+
+    interface ChunkReader {
+        int read(ByteBuffer buffer) throws IOException;
+    }
+
+    interface WordSource {
+        int get(int index);
+    }
+
+    interface WordSink {
+        void set(int index, int value);
+    }
+
+    static ChunkWriter writer(OutputStream outputStream) {
+        return b -> outputStream.write(b.array(), b.position(), b.remaining());
+    }
+
+    static ChunkWriter writer(WritableByteChannel channel) {
+        return b -> {
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+        };
+    }
+
+    static ChunkReader reader(InputStream inputStream) {
+        return b -> {
+            int read = inputStream.read(b.array(), b.position(), b.remaining());
+            if (read > 0) {
+                b.position(b.position() + read);
+            }
+            return read;
+        };
+    }
+
+    static ChunkReader reader(ReadableByteChannel channel) {
+        return channel::read;
+    }
+
+    /**
+     * Writes the header and the words in the format given by the header version,
+     * the buffer is used for all chunks.
+     */
+    static void write(FilterHeader header, WordSource words, ByteBuffer buffer, ChunkWriter writer)
+            throws IOException {
+        buffer.clear();
+        header.writeTo(buffer);
+        switch (header.version) {
+            case VERSION_RAW:
+                writeWords(header.dataLength, words, buffer, writer);
+                break;
+            case VERSION_DEFLATE:
+                buffer.flip();
+                writer.write(buffer);
+                buffer.clear();
+                Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+                try {
+                    DeflatingWriter deflating = new DeflatingWriter(deflater, writer);
+                    writeWords(header.dataLength, words, buffer, deflating);
+                    deflating.finish();
+                } finally {
+                    deflater.end();
+                }
+                break;
+            default:
+                throw new IOException("Unsupported filter version " + header.version);
+        }
+    }
+
+    /**
+     * Writes the words uncompressed after the content already in the buffer.
+     */
+    static void writeWords(int count, WordSource words, ByteBuffer buffer, ChunkWriter writer)
+            throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < Integer.BYTES) {
+                buffer.flip();
+                writer.write(buffer);
+                buffer.clear();
+            }
+            buffer.putInt(words.get(i));
+        }
+        buffer.flip();
+        writer.write(buffer);
+    }
+
+    static FilterHeader readHeader(ByteBuffer buffer, ChunkReader reader) throws IOException {
+        fill(buffer, FilterHeader.SIZE, reader);
+        return FilterHeader.readFrom(buffer);
+    }
+
+    /**
+     * Reads the words of the header version chunk by chunk straight into the sink.
+     * Compressed words are inflated chunk wise as well, the compressed data is never held as a whole.
+     * The reader may consume a few bytes beyond the end of the compressed data.
+     */
+    static void readWords(FilterHeader header, WordSink words, ByteBuffer buffer, ChunkReader reader)
+            throws IOException {
+        switch (header.version) {
+            case VERSION_RAW:
+                readWords(header.dataLength, words, buffer, reader);
+                break;
+            case VERSION_DEFLATE:
+                Inflater inflater = new Inflater();
+                try {
+                    readWords(header.dataLength, words, buffer, inflating(inflater, reader));
+                } finally {
+                    inflater.end();
+                }
+                break;
+            default:
+                throw new IOException("Unsupported filter version " + header.version);
+        }
+    }
+
+    /**
+     * Reads the given amount of uncompressed words.
+     */
+    static void readWords(int count, WordSink words, ByteBuffer buffer, ChunkReader reader)
+            throws IOException {
+        int word = 0;
+        while (word < count) {
+            int chunk = Math.min(count - word, buffer.capacity() / Integer.BYTES);
+            fill(buffer, chunk * Integer.BYTES, reader);
+            IntBuffer ints = buffer.asIntBuffer();
+            for (int i = 0; i < chunk; i++) {
+                words.set(word++, ints.get(i));
+            }
+        }
+    }
+
+    /**
+     * Inflates the compressed chunks of the source reader.
+     */
+    private static ChunkReader inflating(Inflater inflater, ChunkReader source) {
+        ByteBuffer input = ByteBuffer.allocate(CHUNK_SIZE);
+        input.flip();
+        return b -> {
+            int start = b.position();
+            try {
+                while (b.position() == start) {
+                    if (inflater.finished()) {
+                        return -1;
+                    }
+                    if (inflater.needsInput()) {
+                        input.compact();
+                        int read = source.read(input);
+                        input.flip();
+                        if (read < 0) {
+                            return -1;
+                        }
+                        inflater.setInput(input);
+                    }
+                    inflater.inflate(b);
+                    if (inflater.needsDictionary()) {
+                        throw new IOException("Invalid compressed filter data");
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid compressed filter data", e);
+            }
+            return b.position() - start;
+        };
+    }
+
+    /**
+     * Reads exactly the given amount of bytes into the buffer and flips it.
+     */
+    private static void fill(ByteBuffer buffer, int bytes, ChunkReader reader) throws IOException {
+        buffer.clear();
+        buffer.limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (reader.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of filter data");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Deflates the written chunks into the target writer.
+     */
+    private static final class DeflatingWriter implements ChunkWriter {
+        private final Deflater deflater;
+        private final ChunkWriter target;
+        private final ByteBuffer output = ByteBuffer.allocate(CHUNK_SIZE);
+
+        DeflatingWriter(Deflater deflater, ChunkWriter target) {
+            this.deflater = deflater;
+            this.target = target;
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) throws IOException {
+            this.deflater.setInput(buffer);
+            while (!this.deflater.needsInput()) {
+                this.drain();
+            }
+        }
+
+        void finish() throws IOException {
+            this.deflater.finish();
+            while (!this.deflater.finished()) {
+                this.drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            this.deflater.deflate(this.output);
+            this.output.flip();
+            this.target.write(this.output);
+            this.output.clear();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up an element in many filters at once, e.g. the filters of all countries.
+ * The element is hashed once per hash strategy, the indexes are calculated once per size m and
+ * reused by all filters of the same strategy and size, filters with a smaller k use the first indexes.
+ * The filters are grouped when the group is created, so they must not be read again while in the group.
+ * Adds to the filters are visible to the group.
+ */
+public final class FilterGroup {
+    // indexes of the current element per thread, k is a positive byte
+    private static final ThreadLocal<long[]> INDEXES = ThreadLocal.withInitial(() -> new long[Byte.MAX_VALUE]);
+
+    private final List<BloomFilterImpl> filters;
+    private final StrategyGroup[] groups;
+
+    /**
+     * Filters sharing the hash strategy, grouped by size.
+     */
+    private static final class StrategyGroup {
+        private final HashStrategy strategy;
+        // one array of members per size
+        private final Member[][] members;
+
+        StrategyGroup(HashStrategy strategy, Member[][] members) {
+            this.strategy = strategy;
+            this.members = members;
+        }
+    }
+
+    private static final class Member {
+        private final BloomFilterImpl filter;
+        private final int position;
+        private final int numberOfHashes;
+
+        Member(BloomFilterImpl filter, int position) {
+            this.filter = filter;
+            this.position = position;
+            this.numberOfHashes = filter.getK();
+        }
+    }
+
+    /**
+     * @param filters filters to look up, their position in the list is the position in the result
+     */
+    public FilterGroup(List<? extends BloomFilterImpl> filters) {
+        this.filters = Collections.unmodifiableList(new ArrayList<>(filters));
+        Map<HashStrategy, Map<Long, List<Member>>> byStrategy = new LinkedHashMap<>();
+        for (int i = 0; i < this.filters.size(); i++) {
+            BloomFilterImpl filter = this.filters.get(i);
+            byStrategy.computeIfAbsent(filter.getHashStrategy(), s -> new LinkedHashMap<>())
+                    .computeIfAbsent(filter.getM(), m -> new ArrayList<>()).add(new Member(filter, i));
+        }
+        this.groups = new StrategyGroup[byStrategy.size()];
+        int group = 0;
+        for (Map.Entry<HashStrategy, Map<Long, List<Member>>> entry : byStrategy.entrySet()) {
+            Member[][] members = entry.getValue().values().stream()
+                    .map(sizeMembers -> sizeMembers.toArray(new Member[0]))
+                    .toArray(Member[][]::new);
+            this.groups[group++] = new StrategyGroup(entry.getKey(), members);
+        }
+    }
+
+    /**
+     * @return the positions of the filters which might contain the element
+     */
+    public BitSet mightContain(byte[] element) throws NoSuchAlgorithmException, FilterException {
+        return this.mightContain(element, new BitSet(this.filters.size()));
+    }
+
+    /**
+     * Allocation free variant of {@link #mightContain(byte[])} for repeated lookups.
+     *
+     * @param result set to reuse, it is cleared first
+     * @return the result, with the positions of the filters which might contain the element
+     */
+    public BitSet mightContain(byte[] element, BitSet result) throws NoSuchAlgorithmException, FilterException {
+        result.clear();
+        long[] indexes = INDEXES.get();
+        for (StrategyGroup group : this.groups) {
+            ElementHasher hasher = ElementHasher.get(group.strategy, group.strategy.getId(),
+                    element, 0, element.length);
+            try {
+                this.probe(group, hasher, indexes, result);
+            } finally {
+                hasher.release();
+            }
+        }
+        return result;
+    }
+
+    private void probe(StrategyGroup group, ElementHasher hasher, long[] indexes, BitSet result) {
+        for (Member[] members : group.members) {
+            long bits = members[0].filter.getM();
+            int calculated = 0;
+            for (Member member : members) {
+                boolean contained = true;
+                for (int i = 0; i < member.numberOfHashes; i++) {
+                    if (i == calculated) {
+                        indexes[calculated++] = hasher.index(i, bits);
+                    }
+                    if (!member.filter.isBitSet(indexes[i])) {
+                        contained = false;
+                        break;
+                    }
+                }
+                if (contained) {
+                    result.set(member.position);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the filters which might contain the element, in the order of the group
+     */
+    public List<BloomFilterImpl> matching(byte[] element) throws NoSuchAlgorithmException, FilterException {
+        BitSet positions = this.mightContain(element);
+        List<BloomFilterImpl> result = new ArrayList<>(positions.cardinality());
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+            result.add(this.filters.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return the filters of the group
+     */
+    public List<BloomFilterImpl> getFilters() {
+        return this.filters;
+    }
+
+    public int size() {
+        return this.filters.size();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Header of the serialized filter, in big endian:
+ * version (2 byte), k (1 byte), used hash function (1 byte), p (4 byte float),
+ * n (4 byte), current element amount (4 byte), data length in 4 byte words (4 byte).
+ */
+final class FilterHeader {
+    static final int SIZE = 20;
+
+    short version;
+    byte numberOfHashes;
+    byte usedHashFunction;
+    float probRate;
+    int definedElementAmount;
+    int currentElementAmount;
+    int dataLength;
+
+    static FilterHeader readFrom(ByteBuffer buffer) {
+        FilterHeader header = new FilterHeader();
+        header.version = buffer.getShort();
+        header.numberOfHashes = buffer.get();
+        header.usedHashFunction = buffer.get();
+        header.probRate = buffer.getFloat();
+        header.definedElementAmount = buffer.getInt();
+        header.currentElementAmount = buffer.getInt();
+        header.dataLength = buffer.getInt();
+        return header;
+    }
+
+    FilterHeader withVersion(short version) {
+        FilterHeader header = new FilterHeader();
+        header.version = version;
+        header.numberOfHashes = this.numberOfHashes;
+        header.usedHashFunction = this.usedHashFunction;
+        header.probRate = this.probRate;
+        header.definedElementAmount = this.definedElementAmount;
+        header.currentElementAmount = this.currentElementAmount;
+        header.dataLength = this.dataLength;
+        return header;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putShort(this.version);
+        buffer.put(this.numberOfHashes);
+        buffer.put(this.usedHashFunction);
+        buffer.putFloat(this.probRate);
+        buffer.putInt(this.definedElementAmount);
+        buffer.putInt(this.currentElementAmount);
+        buffer.putInt(this.dataLength);
+    }
+}
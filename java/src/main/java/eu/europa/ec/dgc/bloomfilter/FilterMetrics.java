@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of a filter, enabled with {@link BloomFilterImpl#setMetrics(FilterMetrics)}.
+ * Adds, lookups and positive lookups are counted with striped counters. The duration of one in sampleRate
+ * adds and lookups is measured, loads and serializations are always measured. Filters without metrics
+ * only pay a null check per operation.
+ */
+public final class FilterMetrics {
+    public static final int DEFAULT_SAMPLE_RATE = 64;
+    static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final int sampleRate;
+    private final LongAdder adds = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder positives = new LongAdder();
+    private final Map<FilterOperation, LatencyHistogram> latencies = new EnumMap<>(FilterOperation.class);
+    private final CopyOnWriteArrayList<FilterMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    public FilterMetrics() {
+        this(DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * @param sampleRate one in sampleRate adds and lookups is timed, 1 times all of them
+     */
+    public FilterMetrics(int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive");
+        }
+        this.sampleRate = sampleRate;
+        for (FilterOperation operation : FilterOperation.values()) {
+            this.latencies.put(operation, new LatencyHistogram());
+        }
+    }
+
+    public void addListener(FilterMetricsListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(FilterMetricsListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * @return start time of the operation, or {@link #NOT_SAMPLED}
+     */
+    long startSample() {
+        if (this.sampleRate == 1 || ThreadLocalRandom.current().nextInt(this.sampleRate) == 0) {
+            return System.nanoTime();
+        }
+        return NOT_SAMPLED;
+    }
+
+    void recordAdd(long start) {
+        this.adds.increment();
+        if (start != NOT_SAMPLED) {
+            this.sample(FilterOperation.ADD, System.nanoTime() - start);
+        }
+    }
+
+    void recordLookup(long start, boolean positive) {
+        this.lookups.increment();
+        if (positive) {
+            this.positives.increment();
+        }
+        if (start != NOT_SAMPLED) {
+            long nanos = System.nanoTime() - start;
+            this.sample(FilterOperation.LOOKUP, nanos);
+            FilterEvents.lookup(nanos, positive);
+        }
+    }
+
+    /**
+     * Counts the lookups of a batch, the duration of a batch is no lookup latency and not sampled.
+     */
+    void recordLookups(int count, boolean[] results) {
+        this.lookups.add(count);
+        int positive = 0;
+        for (int i = 0; i < count; i++) {
+            if (results[i]) {
+                positive++;
+            }
+        }
+        this.positives.add(positive);
+    }
+
+    void recordFilled(long elements, int definedElements) {
+        for (FilterMetricsListener listener : this.listeners) {
+            listener.onFilled(elements, definedElements);
+        }
+    }
+
+    void sample(FilterOperation operation, long nanos) {
+        this.latencies.get(operation).record(nanos);
+        for (FilterMetricsListener listener : this.listeners) {
+            listener.onSample(operation, nanos);
+        }
+    }
+
+    public long getAdds() {
+        return this.adds.sum();
+    }
+
+    public long getLookups() {
+        return this.lookups.sum();
+    }
+
+    public long getPositives() {
+        return this.positives.sum();
+    }
+
+    /**
+     * @return share of positive lookups, 0 without lookups. Far above p, most looked up elements are
+     *     contained or the filter is saturated.
+     */
+    public double getPositiveRate() {
+        long lookupCount = this.lookups.sum();
+        return lookupCount == 0 ? 0 : (double) this.positives.sum() / lookupCount;
+    }
+
+    /**
+     * @return the histogram of the measured durations of the operation
+     */
+    public LatencyHistogram getLatency(FilterOperation operation) {
+        return this.latencies.get(operation);
+    }
+
+    public int getSampleRate() {
+        return this.sampleRate;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+/**
+ * Receives the measurements of {@link FilterMetrics}, e.g. to bridge them to a metrics library.
+ * Methods are called on the thread of the operation and should return quickly.
+ */
+public interface FilterMetricsListener {
+
+    /**
+     * Called with the duration of sampled adds and lookups and of every load and serialization.
+     *
+     * @param operation measured operation
+     * @param nanos duration in nanoseconds
+     */
+    default void onSample(FilterOperation operation, long nanos) {
+    }
+
+    /**
+     * Called once when the filter reaches the amount of elements it was constructed for.
+     *
+     * @param elements current amount of elements
+     * @param definedElements amount of elements the filter was constructed for
+     */
+    default void onFilled(long elements, int definedElements) {
+    }
+}
@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+/**
+ * Operations of a filter recorded by {@link FilterMetrics}.
+ */
+public enum FilterOperation {
+    ADD,
+    LOOKUP,
+    LOAD,
+    SERIALIZE
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Holds the current version of many filters, keyed by filter id. New versions are loaded in the
+ * background and published with an atomic swap, readers always get a complete filter without locking.
+ *
+ * <p>Loaded filters take getM() / 8 bytes of the memory budget. When the budget is exceeded, the least
+ * recently used filters are evicted, the registry keeps their version and reloads them from the source
+ * on the next access. A single filter larger than the budget stays loaded.</p>
+ */
+public final class FilterRegistry implements Closeable {
+
+    /**
+     * Provides the serialized filters, in any format readable by {@link BloomFilterImpl#readFrom(InputStream)}.
+     */
+    public interface FilterSource {
+        /**
+         * @return stream of the filter, closed by the registry
+         * @throws IOException if the version is not available
+         */
+        InputStream open(String id, long version) throws IOException;
+    }
+
+    /**
+     * Version of a filter, the filter is null once evicted.
+     */
+    private static final class Loaded {
+        private final long version;
+        private final BloomFilterImpl filter;
+
+        Loaded(long version, BloomFilterImpl filter) {
+            this.version = version;
+            this.filter = filter;
+        }
+    }
+
+    private static final class Entry {
+        private final String id;
+        private final AtomicReference<Loaded> current = new AtomicReference<>();
+        private volatile long lastAccess;
+
+        Entry(String id) {
+            this.id = id;
+        }
+    }
+
+    private final FilterSource source;
+    private final long memoryBudget;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong loadedBytes = new AtomicLong();
+
+    /**
+     * Creates a registry loading on its own background thread, closed by {@link #close()}.
+     *
+     * @param source source of the filters
+     * @param memoryBudget maximum amount of bytes of all loaded filters
+     */
+    public FilterRegistry(FilterSource source, long memoryBudget) {
+        this(source, memoryBudget, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filter-registry");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * @param source source of the filters
+     * @param memoryBudget maximum amount of bytes of all loaded filters
+     * @param executor executor of the background loads
+     */
+    public FilterRegistry(FilterSource source, long memoryBudget, Executor executor) {
+        this(source, memoryBudget, executor, false);
+    }
+
+    private FilterRegistry(FilterSource source, long memoryBudget, Executor executor, boolean owned) {
+        if (source == null || executor == null) {
+            throw new IllegalArgumentException("source and executor cannot be null");
+        }
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget <= 0");
+        }
+        this.source = source;
+        this.memoryBudget = memoryBudget;
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+    }
+
+    /**
+     * Loads a version of a filter in the background and publishes it, unless a newer version was
+     * published in between. Readers keep getting the previous version until then.
+     *
+     * @return the published filter, or the newer one which is current already, reloaded if it was evicted.
+     *     Fails with an {@link UncheckedIOException} if the version can not be loaded, the previous
+     *     version stays current.
+     */
+    public CompletableFuture<BloomFilterImpl> update(String id, long version) {
+        if (id == null) {
+            throw new IllegalArgumentException("id cannot be null");
+        }
+        Entry entry = this.entries.computeIfAbsent(id, Entry::new);
+        Loaded current = entry.current.get();
+        if (current != null && current.version >= version && current.filter != null) {
+            return CompletableFuture.completedFuture(current.filter);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Loaded latest = entry.current.get();
+                if (latest != null && latest.version > version) {
+                    return this.reload(entry);
+                }
+                return this.publish(entry, version, this.load(id, version));
+            } catch (IOException e) {
+                Logger.getGlobal().warning("Loading version " + version + " of filter " + id + " failed: " + e);
+                throw new UncheckedIOException(e);
+            }
+        }, this.executor);
+    }
+
+    /**
+     * Returns the current version of a filter, evicted filters are reloaded in the calling thread.
+     *
+     * @return the filter or null if no version of the id was published
+     * @throws IOException if an evicted filter can not be reloaded
+     */
+    public BloomFilterImpl get(String id) throws IOException {
+        Entry entry = this.entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        Loaded current = entry.current.get();
+        if (current == null) {
+            return null;
+        }
+        if (current.filter != null) {
+            return current.filter;
+        }
+        return this.reload(entry);
+    }
+
+    /**
+     * Loads the current version again, if it was evicted.
+     *
+     * @return the current filter, null if the entry was removed
+     */
+    private BloomFilterImpl reload(Entry entry) throws IOException {
+        synchronized (entry) {
+            Loaded current = entry.current.get();
+            if (current == null || current.filter != null) {
+                return current == null ? null : current.filter;
+            }
+            return this.publish(entry, current.version, this.load(entry.id, current.version));
+        }
+    }
+
+    /**
+     * @return the current version of the filter, -1 if no version was published
+     */
+    public long getVersion(String id) {
+        Entry entry = this.entries.get(id);
+        Loaded current = entry == null ? null : entry.current.get();
+        return current == null ? -1 : current.version;
+    }
+
+    /**
+     * Removes the filter from the registry, pending updates of the filter are discarded.
+     */
+    public void remove(String id) {
+        Entry entry = this.entries.remove(id);
+        if (entry != null) {
+            this.remove(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        Loaded removed = entry.current.getAndSet(null);
+        if (removed != null && removed.filter != null) {
+            this.loadedBytes.addAndGet(-bytes(removed.filter));
+        }
+    }
+
+    private BloomFilterImpl load(String id, long version) throws IOException {
+        try (InputStream inputStream = this.source.open(id, version)) {
+            if (inputStream == null) {
+                throw new IOException("No version " + version + " of filter " + id);
+            }
+            return new BloomFilterImpl(Channels.newChannel(inputStream));
+        } catch (FilterException e) {
+            throw new IOException("Version " + version + " of filter " + id + " is not readable", e);
+        }
+    }
+
+    /**
+     * Swaps the filter in, if its version is newer than the current one or the current one is evicted.
+     * If a newer version became current in between, that one is returned, reloaded if it was evicted.
+     *
+     * @return the current filter after the swap
+     * @throws IOException if the evicted newer version can not be reloaded
+     */
+    private BloomFilterImpl publish(Entry entry, long version, BloomFilterImpl filter) throws IOException {
+        Loaded loaded = new Loaded(version, filter);
+        while (true) {
+            Loaded current = entry.current.get();
+            if (current != null && current.version > version) {
+                return current.filter != null ? current.filter : this.reload(entry);
+            }
+            if (current != null && current.version == version && current.filter != null) {
+                return current.filter;
+            }
+            if (entry.current.compareAndSet(current, loaded)) {
+                long replaced = current == null || current.filter == null ? 0 : bytes(current.filter);
+                this.loadedBytes.addAndGet(bytes(filter) - replaced);
+                if (this.entries.get(entry.id) != entry) {
+                    // removed while loading
+                    this.remove(entry);
+                    return filter;
+                }
+                entry.lastAccess = System.nanoTime();
+                this.evict(entry);
+                return filter;
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used filters other than keep until the budget is met.
+     */
+    private synchronized void evict(Entry keep) {
+        while (this.loadedBytes.get() > this.memoryBudget) {
+            Entry oldest = null;
+            for (Entry entry : this.entries.values()) {
+                Loaded current = entry.current.get();
+                if (entry != keep && current != null && current.filter != null
+                        && (oldest == null || entry.lastAccess - oldest.lastAccess < 0)) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            Loaded current = oldest.current.get();
+            if (current != null && current.filter != null
+                    && oldest.current.compareAndSet(current, new Loaded(current.version, null))) {
+                this.loadedBytes.addAndGet(-bytes(current.filter));
+            }
+        }
+    }
+
+    private static long bytes(BloomFilterImpl filter) {
+        return filter.getM() / Byte.SIZE;
+    }
+
+    /**
+     * @return the amount of bytes of the loaded filters
+     */
+    public long getLoadedBytes() {
+        return this.loadedBytes.get();
+    }
+
+    public long getMemoryBudget() {
+        return this.memoryBudget;
+    }
+
+    /**
+     * @return the amount of filter ids, loaded or evicted
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Stops the background thread of the registry, if it was created by the registry.
+     */
+    @Override
+    public void close() {
+        if (this.ownedExecutor != null) {
+            this.ownedExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import eu.europa.ec.dgc.bloomfilter.exception.FilterExceptionsTypes;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Bloom filter for elements with an expiry date. Every element is added to the bucket of the period
+ * its expiry falls into, a plain {@link BloomFilterImpl} per period. Lookups check all live buckets,
+ * buckets are dropped as a whole once their period ended, so the size follows the amount of live
+ * elements without rebuilding. The false positive rate is at most the one of a bucket times the amount
+ * of live buckets.
+ *
+ * <p>The filter is serialized as container (see {@link FilterContainer}) of type 2 with the parameters
+ * period in seconds (8 byte), maximum amount of buckets (4 byte), bucket capacity (4 byte), p (4 byte float)
+ * and hash function id (1 byte), followed by the amount of buckets (4 byte), the period number of each
+ * bucket (8 byte each, the bucket covers expiries from number * period to (number + 1) * period seconds
+ * since the epoch) and the buckets as segments.</p>
+ */
+public class GenerationalBloomFilter implements BloomFilter {
+    private long periodSeconds;
+    private int maxBuckets;
+    private int bucketCapacity;
+    private float probRate;
+    private HashStrategy hashStrategy;
+    private final Clock clock;
+    // copy on write, replaced when a bucket is created or dropped
+    private volatile Buckets buckets = Buckets.EMPTY;
+
+    public GenerationalBloomFilter(Duration period, int maxBuckets, int bucketCapacity, float probRate) {
+        this(period, maxBuckets, bucketCapacity, probRate, HashStrategy.SHA256, Clock.systemUTC());
+    }
+
+    /**
+     * @param period length of the expiry period of a bucket, whole seconds
+     * @param maxBuckets amount of periods from now on which elements can expire in
+     * @param bucketCapacity amount of elements per bucket
+     * @param probRate false positive rate per bucket
+     * @param hashStrategy strategy of all buckets
+     * @param clock source of the current time
+     */
+    public GenerationalBloomFilter(Duration period, int maxBuckets, int bucketCapacity, float probRate,
+                                   HashStrategy hashStrategy, Clock clock) {
+        if (period == null || period.getSeconds() <= 0 || maxBuckets <= 0) {
+            throw new IllegalArgumentException("period < 1 second, maxBuckets <= 0");
+        }
+        if (bucketCapacity <= 0 || probRate <= 0 || probRate >= 1) {
+            throw new IllegalArgumentException("bucketCapacity <= 0, probRate not between 0 and 1");
+        }
+        if (hashStrategy == null || clock == null) {
+            throw new IllegalArgumentException("hashStrategy and clock cannot be null");
+        }
+        this.periodSeconds = period.getSeconds();
+        this.maxBuckets = maxBuckets;
+        this.bucketCapacity = bucketCapacity;
+        this.probRate = probRate;
+        this.hashStrategy = hashStrategy;
+        this.clock = clock;
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(OutputStream)}, buckets expired in between are dropped.
+     *
+     * @throws IOException if the stream is no valid generational filter
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    public GenerationalBloomFilter(InputStream inputStream, Clock clock) throws IOException, FilterException {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock cannot be null");
+        }
+        this.clock = clock;
+        this.read(inputStream);
+    }
+
+    private long currentPeriod() {
+        return Math.floorDiv(this.clock.instant().getEpochSecond(), this.periodSeconds);
+    }
+
+    /**
+     * Adds an element which is valid until the given expiry. Elements which are already expired are not added.
+     *
+     * @throws FilterException if the expiry is beyond the last period of the filter
+     */
+    public void add(byte[] element, Instant expiry) throws NoSuchAlgorithmException, FilterException {
+        long current = this.currentPeriod();
+        long period = Math.floorDiv(expiry.getEpochSecond(), this.periodSeconds);
+        if (!expiry.isAfter(this.clock.instant())) {
+            return;
+        }
+        if (period >= current + this.maxBuckets) {
+            throw new FilterException("Expiry " + expiry + " beyond the last period of the filter",
+                    FilterExceptionsTypes.INVALID_PARAM);
+        }
+        this.expire(current);
+        Buckets live = this.buckets;
+        int index = Arrays.binarySearch(live.periods, period);
+        BloomFilterImpl bucket = index >= 0 ? live.filters[index] : this.createBucket(period);
+        bucket.add(element, 0, element.length);
+    }
+
+    /**
+     * Creates the bucket of the period, unless another thread did so already.
+     *
+     * @return the bucket of the period
+     */
+    private synchronized BloomFilterImpl createBucket(long period) {
+        Buckets current = this.buckets;
+        int index = Arrays.binarySearch(current.periods, period);
+        if (index >= 0) {
+            return current.filters[index];
+        }
+        int insert = -index - 1;
+        int count = current.periods.length;
+        long[] periods = new long[count + 1];
+        BloomFilterImpl[] filters = new BloomFilterImpl[count + 1];
+        System.arraycopy(current.periods, 0, periods, 0, insert);
+        System.arraycopy(current.filters, 0, filters, 0, insert);
+        System.arraycopy(current.periods, insert, periods, insert + 1, count - insert);
+        System.arraycopy(current.filters, insert, filters, insert + 1, count - insert);
+        periods[insert] = period;
+        filters[insert] = new BloomFilterImpl(this.bucketCapacity, this.probRate, this.hashStrategy);
+        this.buckets = new Buckets(periods, filters);
+        return filters[insert];
+    }
+
+    /**
+     * Adds an element to the last period of the filter, it is kept as long as possible.
+     */
+    @Override
+    public void add(byte[] element) throws NoSuchAlgorithmException, FilterException {
+        long lastPeriod = this.currentPeriod() + this.maxBuckets;
+        this.add(element, Instant.ofEpochSecond(lastPeriod * this.periodSeconds - 1));
+    }
+
+    /**
+     * Checks the live buckets, the element is hashed only once.
+     */
+    @Override
+    public boolean mightContain(byte[] element) throws NoSuchAlgorithmException, FilterException {
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.hashStrategy.getId(),
+                element, 0, element.length);
+        try {
+            Buckets live = this.buckets;
+            for (int i = live.firstLive(this.currentPeriod()); i < live.filters.length; i++) {
+                if (live.filters[i].mightContain(hasher)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            hasher.release();
+        }
+    }
+
+    /**
+     * Drops the buckets whose period ended.
+     */
+    public void expire() {
+        this.expire(this.currentPeriod());
+    }
+
+    private void expire(long currentPeriod) {
+        Buckets current = this.buckets;
+        if (current.periods.length > 0 && current.periods[0] < currentPeriod) {
+            this.drop(currentPeriod);
+        }
+    }
+
+    private synchronized void drop(long currentPeriod) {
+        Buckets current = this.buckets;
+        int first = current.firstLive(currentPeriod);
+        if (first > 0) {
+            this.buckets = current.from(first);
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(OutputStream)}, buckets expired in between are dropped. The filter is not changed if the
+     * stream can not be read.
+     *
+     * @throws IOException if the stream is no valid generational filter
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    @Override
+    public void readFrom(InputStream inputStream) throws IOException, FilterException {
+        this.read(inputStream);
+    }
+
+    private void read(InputStream inputStream) throws IOException, FilterException {
+        DataInputStream dis = new DataInputStream(inputStream);
+        FilterContainer.readHeader(dis, FilterContainer.TYPE_GENERATIONAL);
+        long readPeriodSeconds = dis.readLong();
+        int readMaxBuckets = dis.readInt();
+        int readBucketCapacity = dis.readInt();
+        float readProbRate = dis.readFloat();
+        byte hashFunction = dis.readByte();
+        HashStrategy readStrategy = HashStrategy.get(hashFunction)
+                .orElseThrow(() -> BloomFilterImpl.unknownHashFunction(hashFunction));
+        if (readPeriodSeconds <= 0) {
+            throw new IOException("Invalid period " + readPeriodSeconds);
+        }
+        int count = dis.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid amount of buckets " + count);
+        }
+        long[] periods = new long[count];
+        for (int i = 0; i < count; i++) {
+            periods[i] = dis.readLong();
+        }
+        BloomFilterImpl[] segments = FilterContainer.readSegments(dis);
+        if (segments.length != count) {
+            throw new IOException("Expected " + count + " buckets, found " + segments.length);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (segments[i].getHashStrategy() != readStrategy) {
+                throw new IOException("Bucket with hash function " + segments[i].getUsedHashFunction());
+            }
+            if (i > 0 && periods[i] <= periods[i - 1]) {
+                throw new IOException("Buckets not ordered by period");
+            }
+        }
+
+        this.periodSeconds = readPeriodSeconds;
+        this.maxBuckets = readMaxBuckets;
+        this.bucketCapacity = readBucketCapacity;
+        this.probRate = readProbRate;
+        this.hashStrategy = readStrategy;
+        this.buckets = new Buckets(periods, segments);
+        this.expire();
+    }
+
+    /**
+     * Writes the live buckets.
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        Buckets current = this.buckets;
+        Buckets live = current.from(current.firstLive(this.currentPeriod()));
+
+        DataOutputStream dos = new DataOutputStream(outputStream);
+        FilterContainer.writeHeader(dos, FilterContainer.TYPE_GENERATIONAL);
+        dos.writeLong(this.periodSeconds);
+        dos.writeInt(this.maxBuckets);
+        dos.writeInt(this.bucketCapacity);
+        dos.writeFloat(this.probRate);
+        dos.writeByte(this.hashStrategy.getId());
+        dos.writeInt(live.periods.length);
+        for (long period : live.periods) {
+            dos.writeLong(period);
+        }
+        FilterContainer.writeSegments(dos, live.filters);
+    }
+
+    /**
+     * @return the false positive rate of a single bucket
+     */
+    @Override
+    public float getP() {
+        return this.probRate;
+    }
+
+    /**
+     * @return the amount of hash rounds of the buckets, 0 if there is no bucket yet
+     */
+    @Override
+    public int getK() {
+        BloomFilterImpl[] filters = this.buckets.filters;
+        return filters.length == 0 ? 0 : filters[0].getK();
+    }
+
+    /**
+     * @return the amount of bits of the live buckets
+     */
+    @Override
+    public long getM() {
+        Buckets live = this.buckets;
+        long bits = 0;
+        for (int i = live.firstLive(this.currentPeriod()); i < live.filters.length; i++) {
+            bits += live.filters[i].getM();
+        }
+        return bits;
+    }
+
+    /**
+     * @return the capacity of a single bucket
+     */
+    @Override
+    public int getN() {
+        return this.bucketCapacity;
+    }
+
+    /**
+     * @return the amount of live buckets
+     */
+    public int getBucketCount() {
+        Buckets live = this.buckets;
+        return live.filters.length - live.firstLive(this.currentPeriod());
+    }
+
+    public Duration getPeriod() {
+        return Duration.ofSeconds(this.periodSeconds);
+    }
+
+    public HashStrategy getHashStrategy() {
+        return this.hashStrategy;
+    }
+
+    /**
+     * The buckets and their period numbers, ordered by period. Never modified, lookups read the arrays
+     * without locking or allocation.
+     */
+    private static final class Buckets {
+        static final Buckets EMPTY = new Buckets(new long[0], new BloomFilterImpl[0]);
+
+        final long[] periods;
+        final BloomFilterImpl[] filters;
+
+        Buckets(long[] periods, BloomFilterImpl[] filters) {
+            this.periods = periods;
+            this.filters = filters;
+        }
+
+        /**
+         * @return the index of the first bucket whose period did not end before the given one
+         */
+        int firstLive(long currentPeriod) {
+            int first = 0;
+            while (first < this.periods.length && this.periods[first] < currentPeriod) {
+                first++;
+            }
+            return first;
+        }
+
+        Buckets from(int first) {
+            return first == 0 ? this : new Buckets(Arrays.copyOfRange(this.periods, first, this.periods.length),
+                    Arrays.copyOfRange(this.filters, first, this.filters.length));
+        }
+    }
+}
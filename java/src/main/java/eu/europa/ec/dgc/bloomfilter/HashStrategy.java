@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Strategies to derive the k bit positions of an element.
+ * The id is stored in the usedHashFunction byte of the serialized filter, reading a filter with an
+ * id unknown to this version fails with
+ * {@link eu.europa.ec.dgc.bloomfilter.exception.FilterExceptionsTypes#NO_SUCH_ALGO}.
+ * The set of strategies is closed, new ids need a new release of the library.
+ */
+public enum HashStrategy {
+    /**
+     * One SHA-256 digest per round over element and round seed, interpreted as signed
+     * big endian number modulo m. Default for cross-platform filters.
+     */
+    SHA256((byte) 0),
+    /**
+     * One SHA-256 digest per element. The first two big endian longs h1 and h2 of the
+     * digest give the positions (h1 + i * h2) mod m, calculated unsigned with 64 bit overflow.
+     */
+    SHA256_DOUBLE_HASHING((byte) 1),
+    /**
+     * One SHA-256 digest per element, all positions within one block of 512 bits (blocked bloom filter).
+     * With the first three big endian longs h1, h2 and h3 of the digest, the block is h1 mod (m / 512)
+     * and the position of round i within the block bits 9 * (i mod 7) to 9 * (i mod 7) + 8 of the word
+     * i / 7, the words being h2, h3 and from j = 2 on fmix64(h2 + j * h3) of MurmurHash3, calculated
+     * with 64 bit overflow. Filters smaller than one block use (h2 + i * h3) mod m.
+     */
+    SHA256_BLOCKED((byte) 2),
+    /**
+     * One MurmurHash3_x64_128 (seed 0) per element, the two 64 bit halves h1 and h2 give the positions
+     * (h1 + i * h2) mod m like {@link #SHA256_DOUBLE_HASHING}. Not cryptographic, for elements which
+     * are already uniformly distributed, e.g. SHA-256 hashes of UVCIs.
+     */
+    MURMUR3_128((byte) 3),
+    /**
+     * XXH64 of the element with seed 0 as h1 and seed 1 as h2, positions as {@link #MURMUR3_128}.
+     */
+    XXHASH64((byte) 4);
+
+    private final byte id;
+
+    HashStrategy(byte id) {
+        this.id = id;
+    }
+
+    public byte getId() {
+        return this.id;
+    }
+
+    public static Optional<HashStrategy> get(byte id) {
+        return Arrays.stream(HashStrategy.values())
+                .filter(strategy -> strategy.id == id)
+                .findFirst();
+    }
+}
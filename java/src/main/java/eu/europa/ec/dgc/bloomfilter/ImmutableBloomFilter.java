@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Immutable bloom filter for lookups only, created by {@link BloomFilterImpl#freeze()} or read from
+ * the serialized format. The words are held in a plain int array, so lookups need no volatile reads.
+ * All fields are final, instances can be shared between threads without further synchronization.
+ *
+ * <p>Filters up to 256 KB with at least {@value #VECTOR_MIN_HASHES} hash rounds and a strategy hashing
+ * once per element test their bits with the vectorized {@link ProbeKernel}, if available. Larger filters
+ * wait on cache misses either way. With one SHA-256 digest per round, calculating all indexes up front
+ * costs more than the early exit saves.</p>
+ */
+public final class ImmutableBloomFilter implements BloomFilter {
+    private static final int NUM_BIT_FORMAT = Integer.SIZE;
+    static final int VECTOR_MIN_HASHES = 16;
+    private static final int VECTOR_MAX_WORDS = 1 << 16;
+    private static final ProbeKernel KERNEL = ProbeKernel.get();
+
+    private final FilterHeader header;
+    private final HashStrategy hashStrategy;
+    private final long numBits;
+    private final int[] data;
+    private final boolean vectorProbe;
+
+    ImmutableBloomFilter(FilterHeader header, int[] data) {
+        this.header = header;
+        this.hashStrategy = HashStrategy.get(header.usedHashFunction).orElse(null);
+        this.numBits = (long) data.length * NUM_BIT_FORMAT;
+        this.data = data;
+        this.vectorProbe = vectorProbe(this.header, this.hashStrategy, data.length);
+    }
+
+    /**
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    public ImmutableBloomFilter(InputStream inputStream) throws IOException, FilterException {
+        this(ByteBuffer.allocate(FilterFormat.CHUNK_SIZE), FilterFormat.reader(inputStream));
+    }
+
+    public ImmutableBloomFilter(ReadableByteChannel channel) throws IOException, FilterException {
+        this(ByteBuffer.allocateDirect(FilterFormat.CHUNK_SIZE), FilterFormat.reader(channel));
+    }
+
+    private ImmutableBloomFilter(ByteBuffer buffer, FilterFormat.ChunkReader reader)
+            throws IOException, FilterException {
+        this.header = FilterFormat.readHeader(buffer, reader);
+        this.hashStrategy = HashStrategy.get(this.header.usedHashFunction)
+                .orElseThrow(() -> BloomFilterImpl.unknownHashFunction(this.header.usedHashFunction));
+        this.numBits = (long) this.header.dataLength * NUM_BIT_FORMAT;
+        int[] words = new int[this.header.dataLength];
+        FilterFormat.readWords(this.header, (index, value) -> words[index] = value, buffer, reader);
+        this.data = words;
+        this.vectorProbe = vectorProbe(this.header, this.hashStrategy, words.length);
+    }
+
+    private static boolean vectorProbe(FilterHeader header, HashStrategy hashStrategy, int words) {
+        return KERNEL.isVectorized() && header.numberOfHashes >= VECTOR_MIN_HASHES && words <= VECTOR_MAX_WORDS
+                && words > 0 && hashStrategy != null && hashStrategy != HashStrategy.SHA256;
+    }
+
+    @Override
+    public boolean mightContain(byte[] element) throws NoSuchAlgorithmException, FilterException, IOException {
+        return this.mightContain(element, 0, element.length);
+    }
+
+    /**
+     * Looks up the element given by the range of the array, without copying it.
+     */
+    @Override
+    public boolean mightContain(byte[] element, int offset, int length) throws NoSuchAlgorithmException, FilterException {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.header.usedHashFunction,
+                element, offset, length);
+        try {
+            return this.mightContain(hasher);
+        } finally {
+            hasher.release();
+        }
+    }
+
+    /**
+     * Looks up the bytes between position and limit of the buffer, the position is not changed.
+     * Heap and direct buffers are hashed in place.
+     */
+    @Override
+    public boolean mightContain(ByteBuffer element) throws NoSuchAlgorithmException, FilterException {
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.header.usedHashFunction, element);
+        try {
+            return this.mightContain(hasher);
+        } finally {
+            hasher.release();
+        }
+    }
+
+    private boolean mightContain(ElementHasher hasher) {
+        int[] words = this.data;
+        if (this.vectorProbe) {
+            hasher.probes(this.header.numberOfHashes, this.numBits);
+            return KERNEL.allSet(words, hasher.probeWords, hasher.probeMasks, this.header.numberOfHashes);
+        }
+        for (int i = 0; i < this.header.numberOfHashes; i++) {
+            long index = hasher.index(i, this.numBits);
+            if ((words[(int) (index / NUM_BIT_FORMAT)] & (Integer.MIN_VALUE >>> index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Not supported, the filter is immutable.
+     */
+    @Override
+    public void add(byte[] element) {
+        throw new UnsupportedOperationException("Immutable filters can not be changed");
+    }
+
+    /**
+     * Not supported, the filter is immutable. Use the stream constructor instead.
+     */
+    @Override
+    public void readFrom(InputStream inputStream) {
+        throw new UnsupportedOperationException("Immutable filters can not be changed");
+    }
+
+    /**
+     * Writes the filter in the format of {@link BloomFilterImpl#writeTo(OutputStream)}.
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        FilterFormat.write(this.header.withVersion(FilterFormat.VERSION_RAW), index -> this.data[index], ByteBuffer.allocate(FilterFormat.CHUNK_SIZE),
+                FilterFormat.writer(outputStream));
+    }
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        FilterFormat.write(this.header.withVersion(FilterFormat.VERSION_RAW), index -> this.data[index],
+                ByteBuffer.allocateDirect(FilterFormat.CHUNK_SIZE), FilterFormat.writer(channel));
+    }
+
+    /**
+     * Writes the filter in the format of {@link BloomFilterImpl#writeCompressedTo(OutputStream)}.
+     */
+    public void writeCompressedTo(OutputStream outputStream) throws IOException {
+        FilterFormat.write(this.header.withVersion(FilterFormat.VERSION_DEFLATE), index -> this.data[index],
+                ByteBuffer.allocate(FilterFormat.CHUNK_SIZE), FilterFormat.writer(outputStream));
+    }
+
+    @Override
+    public float getP() {
+        return this.header.probRate;
+    }
+
+    @Override
+    public int getK() {
+        return this.header.numberOfHashes;
+    }
+
+    @Override
+    public long getM() {
+        return this.numBits;
+    }
+
+    @Override
+    public int getN() {
+        return this.header.definedElementAmount;
+    }
+
+    /**
+     * @return the hash strategy of the filter
+     */
+    public HashStrategy getHashStrategy() {
+        return this.hashStrategy;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations with one bucket per power of two nanoseconds.
+ * Bucket b counts the durations from 2^(b-1) up to 2^b - 1 nanoseconds, bucket 0 durations of 0.
+ */
+public final class LatencyHistogram {
+    private static final int BUCKETS = Long.SIZE;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        this.counts.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+
+    /**
+     * @return the amount of recorded durations
+     */
+    public long getCount() {
+        long count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            count += this.counts.get(b);
+        }
+        return count;
+    }
+
+    /**
+     * @return the amount of durations below 2^bucket nanoseconds and at least 2^(bucket-1)
+     */
+    public long getCount(int bucket) {
+        return this.counts.get(bucket);
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return upper bound of the duration in nanoseconds below which the quantile of the durations lies,
+     *     0 if nothing was recorded
+     */
+    public long getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("quantile not between 0 and 1");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = this.counts.get(b);
+            total += snapshot[b];
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += snapshot[b];
+            if (seen >= rank && seen > 0) {
+                return b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+            }
+        }
+        return 0;
+    }
+}
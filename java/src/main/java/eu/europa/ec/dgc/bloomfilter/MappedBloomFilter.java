@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Read only bloom filter over a file written by {@link BloomFilterImpl#writeTo(OutputStream)}.
+ * Only the header is parsed, lookups read the bits straight from the memory mapped file.
+ * The bits are not copied onto the heap, so several processes share the page cache
+ * of the same file and opening does not depend on the filter size.
+ * Compressed files (version 2) can not be mapped, they have to be read with {@link BloomFilterImpl}.
+ */
+public class MappedBloomFilter implements BloomFilter {
+    private static final short SUPPORTED_VERSION = FilterFormat.VERSION_RAW;
+    private static final int NUM_BIT_FORMAT = Integer.SIZE;
+    // words per mapped segment, the data is mapped in segments of 1 GB
+    private static final int SEGMENT_SHIFT = 28;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FilterHeader header;
+    private final HashStrategy hashStrategy;
+    private final long numBits;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Maps the filter file. The mapping stays valid after the file was closed.
+     *
+     * @param path serialized filter
+     * @throws IOException if the file can not be read or is not a valid filter
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    public MappedBloomFilter(Path path) throws IOException, FilterException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer headerBuffer = ByteBuffer.allocate(FilterHeader.SIZE);
+            while (headerBuffer.hasRemaining()) {
+                if (channel.read(headerBuffer, headerBuffer.position()) < 0) {
+                    throw new IOException("File too short for a filter header: " + path);
+                }
+            }
+            headerBuffer.flip();
+            this.header = FilterHeader.readFrom(headerBuffer);
+            if (this.header.version != SUPPORTED_VERSION) {
+                throw new IOException("Unsupported filter version " + this.header.version);
+            }
+            this.hashStrategy = HashStrategy.get(this.header.usedHashFunction)
+                    .orElseThrow(() -> BloomFilterImpl.unknownHashFunction(this.header.usedHashFunction));
+
+            long dataBytes = (long) this.header.dataLength * Integer.BYTES;
+            if (this.header.dataLength < 0 || channel.size() < FilterHeader.SIZE + dataBytes) {
+                throw new IOException("File too short for the filter data: " + path);
+            }
+
+            int segmentCount = (int) ((this.header.dataLength + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            this.segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long offset = ((long) i << SEGMENT_SHIFT) * Integer.BYTES;
+                long size = Math.min((SEGMENT_MASK + 1) * Integer.BYTES, dataBytes - offset);
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, FilterHeader.SIZE + offset, size);
+            }
+        }
+        this.numBits = (long) this.header.dataLength * NUM_BIT_FORMAT;
+    }
+
+    @Override
+    public boolean mightContain(byte[] element) throws NoSuchAlgorithmException, FilterException, IOException {
+        return this.mightContain(element, 0, element.length);
+    }
+
+    /**
+     * Looks up the element given by the range of the array, without copying it.
+     */
+    @Override
+    public boolean mightContain(byte[] element, int offset, int length) throws NoSuchAlgorithmException, FilterException {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.header.usedHashFunction,
+                element, offset, length);
+        try {
+            return this.mightContain(hasher);
+        } finally {
+            hasher.release();
+        }
+    }
+
+    /**
+     * Looks up the bytes between position and limit of the buffer, the position is not changed.
+     * Heap and direct buffers are hashed in place.
+     */
+    @Override
+    public boolean mightContain(ByteBuffer element) throws NoSuchAlgorithmException, FilterException {
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.header.usedHashFunction, element);
+        try {
+            return this.mightContain(hasher);
+        } finally {
+            hasher.release();
+        }
+    }
+
+    private boolean mightContain(ElementHasher hasher) {
+        for (int i = 0; i < this.header.numberOfHashes; i++) {
+            long index = hasher.index(i, this.numBits);
+            int pattern = Integer.MIN_VALUE >>> index;
+            if ((this.getWord(index / NUM_BIT_FORMAT) & pattern) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getWord(long word) {
+        return this.segments[(int) (word >>> SEGMENT_SHIFT)].getInt((int) (word & SEGMENT_MASK) * Integer.BYTES);
+    }
+
+    /**
+     * Not supported, the filter is read only.
+     */
+    @Override
+    public void add(byte[] element) {
+        throw new UnsupportedOperationException("Mapped filters are read only");
+    }
+
+    /**
+     * Not supported, the filter is bound to its file.
+     */
+    @Override
+    public void readFrom(InputStream inputStream) {
+        throw new UnsupportedOperationException("Mapped filters are read only");
+    }
+
+    /**
+     * Writes the header and the mapped data in the format of {@link BloomFilterImpl#writeTo(OutputStream)}.
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        byte[] chunk = new byte[1 << 16];
+        ByteBuffer headerBuffer = ByteBuffer.wrap(chunk, 0, FilterHeader.SIZE);
+        this.header.writeTo(headerBuffer);
+        outputStream.write(chunk, 0, FilterHeader.SIZE);
+        for (MappedByteBuffer segment : this.segments) {
+            ByteBuffer source = segment.duplicate();
+            while (source.hasRemaining()) {
+                int length = Math.min(chunk.length, source.remaining());
+                source.get(chunk, 0, length);
+                outputStream.write(chunk, 0, length);
+            }
+        }
+    }
+
+    @Override
+    public float getP() {
+        return this.header.probRate;
+    }
+
+    @Override
+    public int getK() {
+        return this.header.numberOfHashes;
+    }
+
+    @Override
+    public long getM() {
+        return this.numBits;
+    }
+
+    @Override
+    public int getN() {
+        return this.header.definedElementAmount;
+    }
+
+    /**
+     * @return the hash strategy of the filter
+     */
+    public HashStrategy getHashStrategy() {
+        return this.hashStrategy;
+    }
+}
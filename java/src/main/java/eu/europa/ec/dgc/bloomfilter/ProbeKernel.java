@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.util.logging.Logger;
+
+/**
+ * Tests the bits of an element once all its word indexes and masks are known.
+ * {@link #get()} returns the vectorized kernel of the java17 sources, packaged in META-INF/versions/17
+ * of the multi-release jar, if the JVM is Java 17 or later and was started with
+ * {@code --add-modules jdk.incubator.vector}, otherwise the scalar one.
+ * Setting the system property {@value #DISABLE_PROPERTY} to true forces the scalar kernel.
+ */
+interface ProbeKernel {
+    String DISABLE_PROPERTY = "eu.europa.ec.dgc.bloomfilter.disableVector";
+    /** Probes are padded to a multiple of 16, the lanes of a 512 bit vector of ints. */
+    int PADDING = 16;
+
+    ProbeKernel SCALAR = (data, words, masks, count) -> {
+        for (int i = 0; i < count; i++) {
+            if ((data[words[i]] & masks[i]) != masks[i]) {
+                return false;
+            }
+        }
+        return true;
+    };
+
+    /**
+     * Vectorized kernels read whole vectors of probes, so the arrays must hold count rounded up to
+     * {@link #PADDING} entries, the entries beyond count with word 0 and mask 0.
+     *
+     * @param data words of the filter, not empty
+     * @param words word index of every probe
+     * @param masks bit mask of every probe within its word
+     * @param count amount of probes
+     * @return true if all probed bits are set
+     */
+    boolean allSet(int[] data, int[] words, int[] masks, int count);
+
+    /**
+     * @return true for the vectorized kernel
+     */
+    default boolean isVectorized() {
+        return false;
+    }
+
+    static ProbeKernel get() {
+        return Loader.KERNEL;
+    }
+
+    /**
+     * Loads the kernel once, on first use.
+     */
+    final class Loader {
+        private static final String VECTOR_MODULE = "jdk.incubator.vector";
+        private static final String VECTOR_KERNEL = "eu.europa.ec.dgc.bloomfilter.VectorProbeKernel";
+        static final ProbeKernel KERNEL = load();
+
+        private Loader() {
+        }
+
+        private static ProbeKernel load() {
+            if (Boolean.getBoolean(DISABLE_PROPERTY) || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+                return SCALAR;
+            }
+            try {
+                return (ProbeKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                Logger.getGlobal().fine("Vector probe kernel not available: " + e);
+                return SCALAR;
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import eu.europa.ec.dgc.bloomfilter.exception.FilterExceptionsTypes;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Bloom filter which grows with the amount of elements (scalable bloom filter).
+ * Elements are added to the newest segment. Once it holds the amount of elements it was
+ * constructed for, a new segment with growth times the capacity and the false positive rate
+ * multiplied by the tightening ratio is appended. With p0 = p * (1 - tightening) for the first
+ * segment, the false positive rate of the whole filter stays below p however many segments are added.
+ * Like the filled warning of {@link BloomFilterImpl}, segments of at least 65536 elements are checked
+ * only on every 64th add of a thread, so they may take up to 63 further elements per thread.
+ * Segments are limited like every {@link BloomFilterImpl} by size and heap, and the false positive
+ * rate of a new segment may become too small to be represented. Once no further segment can be
+ * created, add fails with a {@link FilterException} and the filter keeps its elements.
+ *
+ * <p>The filter is serialized as container (see {@link FilterContainer}) of type 1 with the parameters
+ * p (4 byte float), initial capacity (4 byte), growth (4 byte), tightening ratio (4 byte float)
+ * and hash function id (1 byte), followed by the segments from oldest to newest.</p>
+ */
+public class ScalableBloomFilter implements BloomFilter {
+    public static final int DEFAULT_GROWTH = 2;
+    public static final float DEFAULT_TIGHTENING = 0.5f;
+
+    private float probRate;
+    private int initialCapacity;
+    private int growth;
+    private float tightening;
+    private HashStrategy hashStrategy;
+    // copy on write, ordered from oldest to newest segment
+    private volatile BloomFilterImpl[] segments;
+
+    public ScalableBloomFilter(int initialCapacity, float probRate) {
+        this(initialCapacity, probRate, DEFAULT_GROWTH, DEFAULT_TIGHTENING, HashStrategy.SHA256);
+    }
+
+    /**
+     * @param initialCapacity amount of elements of the first segment
+     * @param probRate upper bound of the false positive rate of the whole filter
+     * @param growth factor of the capacity of each new segment, at least 1
+     * @param tightening factor of the false positive rate of each new segment, between 0 and 1
+     * @param hashStrategy strategy of all segments
+     */
+    public ScalableBloomFilter(int initialCapacity, float probRate, int growth, float tightening,
+                               HashStrategy hashStrategy) {
+        if (initialCapacity <= 0 || probRate <= 0 || probRate >= 1) {
+            throw new IllegalArgumentException("initialCapacity <= 0, probRate not between 0 and 1");
+        }
+        if (growth < 1 || tightening <= 0 || tightening >= 1) {
+            throw new IllegalArgumentException("growth < 1, tightening not between 0 and 1");
+        }
+        if (hashStrategy == null) {
+            throw new IllegalArgumentException("hashStrategy cannot be null");
+        }
+        this.probRate = probRate;
+        this.initialCapacity = initialCapacity;
+        this.growth = growth;
+        this.tightening = tightening;
+        this.hashStrategy = hashStrategy;
+        this.segments = new BloomFilterImpl[]{this.segment(initialCapacity, probRate * (1 - tightening))};
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(OutputStream)}.
+     *
+     * @throws IOException if the stream is no valid scalable filter
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    public ScalableBloomFilter(InputStream inputStream) throws IOException, FilterException {
+        this.read(inputStream);
+    }
+
+    private BloomFilterImpl segment(int capacity, float segmentProbRate) {
+        BloomFilterImpl segment = new BloomFilterImpl(capacity, segmentProbRate, this.hashStrategy);
+        segment.suppressFilledWarning();
+        return segment;
+    }
+
+    /**
+     * @throws FilterException of type {@link FilterExceptionsTypes#INVALID_SIZE} if the newest segment
+     *     is filled and the next one can not be created
+     */
+    @Override
+    public void add(byte[] element) throws NoSuchAlgorithmException, FilterException, IOException {
+        BloomFilterImpl[] current = this.segments;
+        BloomFilterImpl newest = current[current.length - 1];
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.hashStrategy.getId(),
+                element, 0, element.length);
+        try {
+            if (newest.isFilled(hasher)) {
+                newest = this.grow(newest);
+            }
+            newest.add(hasher);
+        } finally {
+            hasher.release();
+        }
+    }
+
+    /**
+     * Appends a new segment, unless another thread did so already.
+     *
+     * @return the newest segment
+     * @throws FilterException if the next segment exceeds the limits of a filter
+     */
+    private synchronized BloomFilterImpl grow(BloomFilterImpl filled) throws FilterException {
+        BloomFilterImpl[] current = this.segments;
+        BloomFilterImpl newest = current[current.length - 1];
+        if (newest != filled) {
+            return newest;
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE, (long) newest.getN() * this.growth);
+        BloomFilterImpl next;
+        try {
+            next = this.segment(capacity, newest.getP() * this.tightening);
+        } catch (IllegalArgumentException e) {
+            FilterException limit = new FilterException("Capacity limit reached, segment " + (current.length + 1)
+                    + " can not be created: " + e.getMessage(), FilterExceptionsTypes.INVALID_SIZE);
+            limit.initCause(e);
+            throw limit;
+        }
+        BloomFilterImpl[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = next;
+        this.segments = grown;
+        return next;
+    }
+
+    /**
+     * Probes the segments from newest to oldest, the element is hashed only once.
+     */
+    @Override
+    public boolean mightContain(byte[] element) throws NoSuchAlgorithmException, FilterException, IOException {
+        BloomFilterImpl[] current = this.segments;
+        ElementHasher hasher = ElementHasher.get(this.hashStrategy, this.hashStrategy.getId(),
+                element, 0, element.length);
+        try {
+            for (int i = current.length - 1; i >= 0; i--) {
+                if (current[i].mightContain(hasher)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            hasher.release();
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(OutputStream)}. The filter is not changed if the
+     * stream can not be read.
+     *
+     * @throws IOException if the stream is no valid scalable filter
+     * @throws FilterException if the filter uses an unknown hash function
+     */
+    @Override
+    public void readFrom(InputStream inputStream) throws IOException, FilterException {
+        this.read(inputStream);
+    }
+
+    private void read(InputStream inputStream) throws IOException, FilterException {
+        DataInputStream dis = new DataInputStream(inputStream);
+        FilterContainer.readHeader(dis, FilterContainer.TYPE_SCALABLE);
+        float readProbRate = dis.readFloat();
+        int readInitialCapacity = dis.readInt();
+        int readGrowth = dis.readInt();
+        float readTightening = dis.readFloat();
+        byte hashFunction = dis.readByte();
+        HashStrategy readStrategy = HashStrategy.get(hashFunction)
+                .orElseThrow(() -> BloomFilterImpl.unknownHashFunction(hashFunction));
+        BloomFilterImpl[] readSegments = FilterContainer.readSegments(dis);
+        if (readSegments.length == 0) {
+            throw new IOException("Scalable filter without segments");
+        }
+        for (BloomFilterImpl segment : readSegments) {
+            if (segment.getHashStrategy() != readStrategy) {
+                throw new IOException("Segment with hash function " + segment.getUsedHashFunction());
+            }
+            segment.suppressFilledWarning();
+        }
+        this.probRate = readProbRate;
+        this.initialCapacity = readInitialCapacity;
+        this.growth = readGrowth;
+        this.tightening = readTightening;
+        this.hashStrategy = readStrategy;
+        this.segments = readSegments;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream dos = new DataOutputStream(outputStream);
+        FilterContainer.writeHeader(dos, FilterContainer.TYPE_SCALABLE);
+        dos.writeFloat(this.probRate);
+        dos.writeInt(this.initialCapacity);
+        dos.writeInt(this.growth);
+        dos.writeFloat(this.tightening);
+        dos.writeByte(this.hashStrategy.getId());
+        FilterContainer.writeSegments(dos, this.segments);
+    }
+
+    /**
+     * @return the upper bound of the false positive rate
+     */
+    @Override
+    public float getP() {
+        return this.probRate;
+    }
+
+    /**
+     * @return the amount of hash rounds of the newest segment
+     */
+    @Override
+    public int getK() {
+        BloomFilterImpl[] current = this.segments;
+        return current[current.length - 1].getK();
+    }
+
+    /**
+     * @return the amount of bits of all segments
+     */
+    @Override
+    public long getM() {
+        long bits = 0;
+        for (BloomFilterImpl segment : this.segments) {
+            bits += segment.getM();
+        }
+        return bits;
+    }
+
+    /**
+     * @return the capacity of all segments, grows with every new segment
+     */
+    @Override
+    public int getN() {
+        long capacity = 0;
+        for (BloomFilterImpl segment : this.segments) {
+            capacity += segment.getN();
+        }
+        return (int) Math.min(capacity, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the amount of elements added to all segments
+     */
+    public int getCurrentElementAmount() {
+        long amount = 0;
+        for (BloomFilterImpl segment : this.segments) {
+            amount += segment.getCurrentElementAmount();
+        }
+        return (int) Math.min(amount, Integer.MAX_VALUE);
+    }
+
+    public int getSegmentCount() {
+        return this.segments.length;
+    }
+
+    public HashStrategy getHashStrategy() {
+        return this.hashStrategy;
+    }
+}
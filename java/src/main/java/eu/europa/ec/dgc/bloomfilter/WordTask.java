@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Combines the words of a source array into a target array of the same length, word by word.
+ * Large arrays are split into ranges and combined in parallel on the fork join pool.
+ * Words are updated with compare and set, so concurrent adds to the target are not lost.
+ */
+final class WordTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    // words per task, below this size the arrays are combined sequentially
+    static final int THRESHOLD = 1 << 16;
+
+    private final AtomicIntegerArray target;
+    private final AtomicIntegerArray source;
+    private final IntBinaryOperator operator;
+    private final int from;
+    private final int to;
+
+    private WordTask(AtomicIntegerArray target, AtomicIntegerArray source, IntBinaryOperator operator,
+                     int from, int to) {
+        this.target = target;
+        this.source = source;
+        this.operator = operator;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Sets every target word to operator(target word, source word).
+     */
+    static void apply(AtomicIntegerArray target, AtomicIntegerArray source, IntBinaryOperator operator) {
+        WordTask task = new WordTask(target, source, operator, 0, target.length());
+        if (target.length() <= THRESHOLD) {
+            task.compute();
+        } else {
+            task.invoke();
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (this.to - this.from > THRESHOLD) {
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new WordTask(this.target, this.source, this.operator, this.from, middle),
+                    new WordTask(this.target, this.source, this.operator, middle, this.to));
+            return;
+        }
+        for (int i = this.from; i < this.to; i++) {
+            int word = this.source.get(i);
+            int current = this.target.get(i);
+            int updated = this.operator.applyAsInt(current, word);
+            while (updated != current && !this.target.compareAndSet(i, current, updated)) {
+                current = this.target.get(i);
+                updated = this.operator.applyAsInt(current, word);
+            }
+        }
+    }
+}
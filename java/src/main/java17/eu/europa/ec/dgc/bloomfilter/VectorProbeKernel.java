@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Probe kernel of the JDK Vector API, gathers the words of as many probes as the preferred vector
+ * holds, masks them and compares in one step. Compiled by the jdk17 profile only and loaded by
+ * {@link ProbeKernel#get()} through reflection.
+ */
+final class VectorProbeKernel implements ProbeKernel {
+    private static final VectorSpecies<Integer> SPECIES =
+            IntVector.SPECIES_PREFERRED.length() <= PADDING ? IntVector.SPECIES_PREFERRED : IntVector.SPECIES_512;
+
+    @Override
+    public boolean allSet(int[] data, int[] words, int[] masks, int count) {
+        // the probes are padded to whole vectors with mask 0, masked gathers are slow
+        for (int i = 0; i < count; i += SPECIES.length()) {
+            IntVector mask = IntVector.fromArray(SPECIES, masks, i);
+            IntVector probed = IntVector.fromArray(SPECIES, data, 0, words, i).and(mask);
+            if (!probed.eq(mask).allTrue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+
+public class BlockedBloomFilterUnitTest {
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    @Test
+    public void testSizeInBlocks() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(1000, 0.01f);
+        assert filter.getM() % 512 == 0;
+        assert filter.getM() >= new BloomFilterImpl(1000, 0.01f).getM();
+        assert filter.getHashStrategy() == HashStrategy.SHA256_BLOCKED;
+
+        assert new BlockedBloomFilter(4, (byte) 3, 1).getM() == 512;
+    }
+
+    @Test
+    public void testProbRate() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(100000, 0.0001f);
+        assert BloomFilterImpl.blockedProbRate(filter.getM(), 100000, filter.getK()) <= 0.0001;
+        assert filter.getM() > new BloomFilterImpl(100000, 0.0001f).getM();
+
+        // the rate of the blocks, above the one of a standard filter of the same size
+        BloomFilterImpl standard = new BloomFilterImpl(100000, 0.0001f);
+        BlockedBloomFilter sized = new BlockedBloomFilter(standard.getM() / 8, (byte) standard.getK(), 100000);
+        assert sized.getP() > 0.00025 && sized.getP() < 0.0003;
+    }
+
+    @Test
+    public void testPositionsInOneBlock() throws NoSuchAlgorithmException {
+        long bits = 512 * 1000;
+        for (int x = 0; x < 1000; x++) {
+            byte[] element = element(x);
+            ElementHasher hasher = ElementHasher.get().reset(HashStrategy.SHA256_BLOCKED, element, 0, element.length);
+            long block = hasher.index(0, bits) / 512;
+            for (int i = 1; i < 20; i++) {
+                assert hasher.index(i, bits) / 512 == block;
+            }
+        }
+    }
+
+    @Test
+    public void testLookup() throws FilterException, IOException, NoSuchAlgorithmException {
+        int entries = 10000;
+        BlockedBloomFilter filter = new BlockedBloomFilter(entries, 0.01f);
+        for (int x = 0; x < entries; x++) {
+            filter.add(element(x));
+        }
+        for (int x = 0; x < entries; x++) {
+            assert filter.mightContain(element(x));
+        }
+        int falsePositives = 0;
+        for (int x = entries; x < entries + 100000; x++) {
+            if (filter.mightContain(element(x))) {
+                falsePositives++;
+            }
+        }
+        // sized for the false positive rate of the blocks, p = 0.01 expects 1000
+        assert falsePositives < 1150 : falsePositives;
+    }
+
+    @Test
+    public void testStreams() throws FilterException, IOException, NoSuchAlgorithmException {
+        BlockedBloomFilter filter = new BlockedBloomFilter(1000, 0.001f);
+        for (int x = 0; x < 1000; x++) {
+            filter.add(element(x));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.writeTo(output);
+        assert output.toByteArray()[3] == HashStrategy.SHA256_BLOCKED.getId();
+
+        BloomFilterImpl read = new BloomFilterImpl(new ByteArrayInputStream(output.toByteArray()));
+        assert read.getHashStrategy() == HashStrategy.SHA256_BLOCKED;
+        assert read.getM() == filter.getM();
+        for (int x = 0; x < 2000; x++) {
+            assert read.mightContain(element(x)) == filter.mightContain(element(x));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+
+public class BloomFilterDeltaUnitTest {
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    private BloomFilterImpl copy(BloomFilterImpl filter) throws FilterException, IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.writeTo(output);
+        return new BloomFilterImpl(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    @Test
+    public void testRoundTrip() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl base = new BloomFilterImpl(100000, 0.001f);
+        for (int x = 0; x < 50000; x++) {
+            base.add(element(x));
+        }
+        BloomFilterImpl target = copy(base);
+        for (int x = 50000; x < 50100; x++) {
+            target.add(element(x));
+        }
+
+        BloomFilterDelta delta = BloomFilterDelta.diff(base, target);
+        assert delta.size() > 0;
+        assert delta.size() <= 100 * target.getK();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        delta.writeTo(output);
+        output.write(42);
+        ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+        BloomFilterDelta read = new BloomFilterDelta(input);
+        // the delta is read without consuming the following bytes
+        assert input.read() == 42;
+
+        BloomFilterImpl updated = copy(base);
+        read.applyTo(updated);
+        assert updated.getCurrentElementAmount() == target.getCurrentElementAmount();
+        for (int i = 0; i < target.getData().length(); i++) {
+            assert updated.getData().get(i) == target.getData().get(i);
+        }
+        for (int x = 0; x < 50100; x++) {
+            assert updated.mightContain(element(x));
+        }
+    }
+
+    @Test
+    public void testEmptyDelta() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl base = new BloomFilterImpl(1000, 0.01f);
+        base.add(element(1));
+        BloomFilterDelta delta = BloomFilterDelta.diff(base, copy(base));
+        assert delta.size() == 0;
+        delta.applyTo(base);
+        assert base.mightContain(element(1));
+    }
+
+    @Test(expected = FilterException.class)
+    public void testWrongBase() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl base = new BloomFilterImpl(1000, 0.01f);
+        BloomFilterImpl target = copy(base);
+        target.add(element(1));
+        BloomFilterDelta delta = BloomFilterDelta.diff(base, target);
+
+        BloomFilterImpl other = copy(base);
+        other.add(element(2));
+        delta.applyTo(other);
+    }
+
+    @Test(expected = FilterException.class)
+    public void testIncompatibleFilters() throws FilterException {
+        BloomFilterDelta.diff(new BloomFilterImpl(1000, 0.01f),
+                new BloomFilterImpl(1000, 0.01f, HashStrategy.SHA256_DOUBLE_HASHING));
+    }
+}
@@ -13,21 +13,29 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLongArray;
 
 public class BloomFilterUnitTest {
 
     private static String JSON_TEST_FILE = "src/test/resources/filter-test.json";
+    private static String INDEX_VECTOR_FILE = "../test/data/index-vectors.json";
     private JSONArray testObjects = null;
     private BloomFilterImpl bloomFilter;
     private FilterTestData filterTestData = null;
@@ -158,6 +166,490 @@ public class BloomFilterUnitTest {
         assert impl.getData().length() == impl2.getData().length();
     }
 
+    @Test
+    public void testDoubleHashing() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl impl = new BloomFilterImpl(1000, 0.001f, HashStrategy.SHA256_DOUBLE_HASHING);
+        for (int x = 0; x < 1000; x++) {
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        for (int x = 0; x < 1000; x++) {
+            assert impl.mightContain(ByteBuffer.allocate(4).putInt(x).array());
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        impl.writeTo(output);
+        byte[] b = output.toByteArray();
+        assert b[3] == HashStrategy.SHA256_DOUBLE_HASHING.getId();
+
+        BloomFilterImpl impl2 = new BloomFilterImpl(new ByteArrayInputStream(b));
+        assert impl2.getHashStrategy() == HashStrategy.SHA256_DOUBLE_HASHING;
+        for (int x = 0; x < 1000; x++) {
+            assert impl2.mightContain(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        int falsePositives = 0;
+        for (int x = 1000; x < 101000; x++) {
+            if (impl2.mightContain(ByteBuffer.allocate(4).putInt(x).array())) {
+                falsePositives++;
+            }
+        }
+        assert falsePositives < 300;
+    }
+
+    @Test
+    public void testDoubleHashIndex() {
+        byte[] digest = new byte[32];
+        digest[7] = 10;
+        digest[15] = 3;
+        assert BloomFilterImpl.calcDoubleHashIndex(digest, 0, 7) == 3;
+        assert BloomFilterImpl.calcDoubleHashIndex(digest, 2, 7) == 2;
+
+        digest[0] = -1; // h1 negative, has to be taken unsigned
+        assert BloomFilterImpl.calcDoubleHashIndex(digest, 0, 100)
+                == Long.remainderUnsigned(0xFF0000000000000AL, 100);
+    }
+
+    @Test
+    public void testDefaultHashStrategy() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl impl = new BloomFilterImpl(500, 0.000000001f);
+        BloomFilterImpl explicit = new BloomFilterImpl(500, 0.000000001f, HashStrategy.SHA256);
+        impl.add(new byte[]{5, 3, 2, 7});
+        explicit.add(new byte[]{5, 3, 2, 7});
+        assert impl.getHashStrategy() == HashStrategy.SHA256;
+        assert impl.getData().toString().equals(explicit.getData().toString());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        impl.writeTo(output);
+        byte[] b = output.toByteArray();
+        assert b[3] == 0;
+
+        // unknown hash function ids are rejected while reading, the filter is not changed
+        b[3] = 99;
+        try {
+            new BloomFilterImpl(Channels.newChannel(new ByteArrayInputStream(b)));
+            assert false;
+        } catch (FilterException e) {
+            // expected
+        }
+        try {
+            new ImmutableBloomFilter(new ByteArrayInputStream(b));
+            assert false;
+        } catch (FilterException e) {
+            // expected
+        }
+        try {
+            new BloomFilterImpl(new ByteArrayInputStream(b));
+            assert false;
+        } catch (FilterException e) {
+            // expected
+        }
+        try {
+            impl.readFrom(new ByteArrayInputStream(b));
+            assert false;
+        } catch (FilterException e) {
+            // expected
+        }
+        assert impl.getHashStrategy() == HashStrategy.SHA256;
+        assert impl.mightContain(new byte[]{5, 3, 2, 7});
+    }
+
+    @Test
+    public void testIndexVectors() throws Exception {
+        JSONArray vectors = (JSONArray) new JSONParser().parse(new FileReader(INDEX_VECTOR_FILE));
+        assert !vectors.isEmpty();
+        for (Object vector : vectors) {
+            JSONObject o = (JSONObject) vector;
+            HashStrategy strategy = HashStrategy.get(((Long) o.get("hashFunction")).byteValue()).get();
+            byte[] element = hexToBytes((String) o.get("element"));
+            long m = (Long) o.get("m");
+            JSONArray indexes = (JSONArray) o.get("indexes");
+            ElementHasher hasher = ElementHasher.get().reset(strategy, element, 0, element.length);
+            for (int i = 0; i < indexes.size(); i++) {
+                long expected = (Long) indexes.get(i);
+                assert hasher.index(i, m) == expected;
+                if (strategy == HashStrategy.SHA256) {
+                    assert BloomFilterImpl.calcIndex(element, i, m).longValue() == expected;
+                } else if (strategy == HashStrategy.SHA256_DOUBLE_HASHING) {
+                    assert BloomFilterImpl.calcDoubleHashIndex(BloomFilterImpl.hash(element), i, m) == expected;
+                } else if (strategy == HashStrategy.SHA256_BLOCKED) {
+                    assert BloomFilterImpl.calcBlockedIndex(BloomFilterImpl.hash(element), i, m) == expected;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSignedModMatchesBigInteger() {
+        Random r = new Random(2022);
+        byte[] value = new byte[32];
+        long[] bits = {1, 3, 32, 1000, 239680, Integer.MAX_VALUE, 1L << 31, (1L << 31) + 1, 1L << 36,
+                (1L << 47) - 1, 1L << 47, (1L << 47) + 1, 1L << 55};
+        for (int x = 0; x < 20000; x++) {
+            r.nextBytes(value);
+            long m = x < bits.length * 100 ? bits[x % bits.length] : 1 + (r.nextLong() >>> 9);
+            assert ElementHasher.signedMod(value, m) == new BigInteger(value).mod(BigInteger.valueOf(m)).longValue();
+        }
+    }
+
+    @Test
+    public void testFixtureFilters() throws Exception {
+        JSONArray fixtures = this.readFromJson();
+        assert fixtures != null;
+        for (Object fixture : fixtures) {
+            JSONObject o = (JSONObject) fixture;
+            JSONArray data = (JSONArray) o.get("data");
+            int[] written = this.toArray((JSONArray) o.get("written"));
+            BloomFilterImpl filter = new BloomFilterImpl(data.size(), ((Double) o.get("p")).floatValue());
+            for (int i = 0; i < written.length; i++) {
+                if (written[i] == 1) {
+                    filter.add(this.dataToArr(data.get(i)));
+                }
+            }
+            assert this.getFilterAsBase64(filter.getData()).equals(o.get("filter"));
+        }
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        int threads = 8;
+        int perThread = 20000;
+        BloomFilterImpl filter = new BloomFilterImpl(threads * perThread, 0.01f);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int x = offset; x < offset + perThread; x++) {
+                    filter.add(ByteBuffer.allocate(4).putInt(x).array());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        for (int x = 0; x < threads * perThread; x++) {
+            assert filter.mightContain(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.writeTo(output);
+        assert ByteBuffer.wrap(output.toByteArray()).getInt(12) == threads * perThread;
+    }
+
+    @Test
+    public void testVersion1Format() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(100000, 0.001f);
+        for (int x = 0; x < 1000; x++) {
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        impl.writeTo(output);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream(expected);
+        dataOutputStream.writeShort(1);
+        dataOutputStream.writeByte(impl.getK());
+        dataOutputStream.writeByte(0);
+        dataOutputStream.writeFloat(impl.getP());
+        dataOutputStream.writeInt(impl.getN());
+        dataOutputStream.writeInt(1000);
+        dataOutputStream.writeInt(impl.getData().length());
+        for (int i = 0; i < impl.getData().length(); i++) {
+            dataOutputStream.writeInt(impl.getData().get(i));
+        }
+        assert Arrays.equals(output.toByteArray(), expected.toByteArray());
+
+        ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        impl.writeTo(Channels.newChannel(channelOutput));
+        assert Arrays.equals(channelOutput.toByteArray(), expected.toByteArray());
+    }
+
+    @Test
+    public void testChannelRoundTrip() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(100000, 0.001f, HashStrategy.SHA256_DOUBLE_HASHING);
+        for (int x = 0; x < 1000; x++) {
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        impl.writeTo(Channels.newChannel(output));
+
+        BloomFilterImpl impl2 = new BloomFilterImpl(Channels.newChannel(new ByteArrayInputStream(output.toByteArray())));
+        assert impl2.getK() == impl.getK();
+        assert impl2.getP() == impl.getP();
+        assert impl2.getM() == impl.getM();
+        assert impl2.getN() == impl.getN();
+        assert impl2.getHashStrategy() == HashStrategy.SHA256_DOUBLE_HASHING;
+        assert impl2.getData().toString().equals(impl.getData().toString());
+
+        BloomFilterImpl impl3 = new BloomFilterImpl(new ByteArrayInputStream(output.toByteArray()));
+        assert impl3.getData().toString().equals(impl.getData().toString());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedChannel() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(1000, 0.01f);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        impl.writeTo(output);
+        byte[] truncated = Arrays.copyOf(output.toByteArray(), output.size() - 1);
+        new BloomFilterImpl(Channels.newChannel(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test
+    public void testCompressedFormat() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(100000, 0.001f);
+        for (int x = 0; x < 1000; x++) {
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        impl.writeTo(raw);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        impl.writeCompressedTo(compressed);
+        assert ByteBuffer.wrap(compressed.toByteArray()).getShort() == 2;
+        assert compressed.size() < raw.size() / 4;
+
+        BloomFilterImpl impl2 = new BloomFilterImpl(new ByteArrayInputStream(compressed.toByteArray()));
+        assert impl2.getK() == impl.getK();
+        assert impl2.getP() == impl.getP();
+        assert impl2.getN() == impl.getN();
+        assert impl2.getCurrentElementAmount() == 1000;
+        assert impl2.getData().toString().equals(impl.getData().toString());
+
+        BloomFilterImpl impl3 = new BloomFilterImpl(Channels.newChannel(new ByteArrayInputStream(compressed.toByteArray())));
+        assert impl3.getData().toString().equals(impl.getData().toString());
+
+        // an immutable filter read from version 2 writes version 1 again
+        ImmutableBloomFilter frozen = new ImmutableBloomFilter(new ByteArrayInputStream(compressed.toByteArray()));
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        frozen.writeTo(rewritten);
+        assert Arrays.equals(rewritten.toByteArray(), raw.toByteArray());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedCompressed() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(100000, 0.001f);
+        impl.add(new byte[]{1});
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        impl.writeCompressedTo(output);
+        byte[] truncated = Arrays.copyOf(output.toByteArray(), output.size() - 10);
+        new BloomFilterImpl(Channels.newChannel(new ByteArrayInputStream(truncated)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedVersion() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(1000, 0.01f);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        impl.writeTo(output);
+        byte[] bytes = output.toByteArray();
+        bytes[1] = 3;
+        new BloomFilterImpl(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testMightContainAll() throws Exception {
+        // the large filter is swept in address order, the small one looked up element by element
+        for (BloomFilterImpl impl : new BloomFilterImpl[]{new BloomFilterImpl(500000, 0.01f),
+                new BloomFilterImpl(1000, 0.01f)}) {
+            byte[][] elements = new byte[20000][];
+            for (int x = 0; x < elements.length; x++) {
+                elements[x] = ByteBuffer.allocate(4).putInt(x).array();
+                if (x % 2 == 0) {
+                    impl.add(elements[x]);
+                }
+            }
+            FilterMetrics metrics = new FilterMetrics();
+            impl.setMetrics(metrics);
+            boolean[] out = new boolean[elements.length];
+            impl.mightContainAll(elements, out);
+            for (int x = 0; x < elements.length; x++) {
+                assert out[x] == impl.mightContain(elements[x]);
+                assert x % 2 != 0 || out[x];
+            }
+            assert metrics.getLookups() == 2L * elements.length;
+            assert Arrays.equals(impl.mightContainAll(Arrays.asList(elements)), out);
+            // the default of the interface
+            assert Arrays.equals(impl.freeze().mightContainAll(Arrays.asList(elements)), out);
+        }
+    }
+
+    @Test
+    public void testRangeAndBufferElements() throws Exception {
+        for (HashStrategy strategy : HashStrategy.values()) {
+            BloomFilterImpl impl = new BloomFilterImpl(1000, 0.001f, strategy);
+            CountingBloomFilter counting = new CountingBloomFilter(1000, 0.001f, strategy);
+            byte[] decodeBuffer = new byte[64];
+            new Random(2022).nextBytes(decodeBuffer);
+            byte[] element = Arrays.copyOfRange(decodeBuffer, 7, 39);
+            impl.add(decodeBuffer, 7, 32);
+            counting.add(decodeBuffer, 7, 32);
+            assert impl.mightContain(element);
+            assert counting.mightContain(element);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(64).put(decodeBuffer);
+            direct.position(7).limit(39);
+            ByteBuffer heap = ByteBuffer.wrap(decodeBuffer, 7, 32).slice();
+            ByteBuffer readOnly = ByteBuffer.wrap(decodeBuffer).asReadOnlyBuffer();
+            readOnly.position(7).limit(39);
+            ImmutableBloomFilter frozen = impl.freeze();
+            for (ByteBuffer buffer : new ByteBuffer[]{direct, heap, readOnly}) {
+                int position = buffer.position();
+                assert impl.mightContain(buffer);
+                assert frozen.mightContain(buffer);
+                assert counting.mightContain(buffer);
+                assert buffer.position() == position;
+            }
+            assert frozen.mightContain(decodeBuffer, 7, 32);
+            assert !impl.mightContain(decodeBuffer, 8, 32);
+
+            BloomFilterImpl fromBuffer = new BloomFilterImpl(1000, 0.001f, strategy);
+            fromBuffer.add(direct);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            impl.writeTo(expected);
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            fromBuffer.writeTo(actual);
+            assert Arrays.equals(actual.toByteArray(), expected.toByteArray());
+            try {
+                impl.mightContain(decodeBuffer, 40, 32);
+                assert false;
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testUnion() throws Exception {
+        // large enough to be combined in parallel
+        BloomFilterImpl all = new BloomFilterImpl(1000000, 0.001f, HashStrategy.SHA256_DOUBLE_HASHING);
+        BloomFilterImpl even = new BloomFilterImpl(1000000, 0.001f, HashStrategy.SHA256_DOUBLE_HASHING);
+        BloomFilterImpl odd = new BloomFilterImpl(1000000, 0.001f, HashStrategy.SHA256_DOUBLE_HASHING);
+        assert all.getData().length() > WordTask.THRESHOLD;
+        for (int x = 0; x < 10000; x++) {
+            byte[] element = ByteBuffer.allocate(4).putInt(x).array();
+            all.add(element);
+            (x % 2 == 0 ? even : odd).add(element);
+        }
+
+        BloomFilterImpl union = BloomFilterImpl.unionOf(even, odd);
+        assert union.getData().toString().equals(all.getData().toString());
+        assert union.getCurrentElementAmount() == 10000;
+        assert even.getCurrentElementAmount() == 5000;
+
+        even.union(odd);
+        assert even.getData().toString().equals(all.getData().toString());
+    }
+
+    @Test
+    public void testIntersect() throws Exception {
+        BloomFilterImpl first = new BloomFilterImpl(10000, 0.001f);
+        BloomFilterImpl second = new BloomFilterImpl(10000, 0.001f);
+        for (int x = 0; x < 1000; x++) {
+            first.add(ByteBuffer.allocate(4).putInt(x).array());
+            second.add(ByteBuffer.allocate(4).putInt(x + 500).array());
+        }
+
+        BloomFilterImpl intersection = BloomFilterImpl.intersectionOf(first, second);
+        for (int x = 500; x < 1000; x++) {
+            assert intersection.mightContain(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        int falsePositives = 0;
+        for (int x = 0; x < 500; x++) {
+            if (intersection.mightContain(ByteBuffer.allocate(4).putInt(x).array())) {
+                falsePositives++;
+            }
+        }
+        assert falsePositives < 10;
+
+        first.intersect(second);
+        assert first.getData().toString().equals(intersection.getData().toString());
+        assert first.getCurrentElementAmount() == 1000;
+    }
+
+    @Test(expected = FilterException.class)
+    public void testUnionIncompatible() throws FilterException {
+        BloomFilterImpl.unionOf(new BloomFilterImpl(1000, 0.01f), new BloomFilterImpl(1000, 0.001f));
+    }
+
+    @Test
+    public void testIsFilled() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(10, 0.01f);
+        for (int x = 0; x < 10; x++) {
+            assert !impl.isFilled();
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        assert impl.isFilled();
+    }
+
+    @Test
+    public void testEstimates() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(10000, 0.01f);
+        assert impl.bitCount() == 0;
+        assert impl.estimateCardinality() == 0;
+        assert impl.estimateFalsePositiveRate() == 0;
+        for (int x = 0; x < 5000; x++) {
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+            // duplicates count as elements, but do not set bits
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        assert impl.getCurrentElementAmount() == 10000;
+        assert Math.abs(impl.estimateCardinality() - 5000) < 250;
+        assert impl.estimateFalsePositiveRate() < impl.getP();
+        assert impl.isConsistent();
+
+        for (int x = 5000; x < 20000; x++) {
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        assert impl.estimateFalsePositiveRate() > impl.getP();
+    }
+
+    @Test
+    public void testParallelBitCount() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(1000000, 0.001f);
+        assert impl.getData().length() > WordTask.THRESHOLD;
+        for (int x = 0; x < 10000; x++) {
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        long bits = 0;
+        for (int i = 0; i < impl.getData().length(); i++) {
+            bits += Integer.bitCount(impl.getData().get(i));
+        }
+        assert impl.bitCount() == bits;
+    }
+
+    @Test
+    public void testInconsistentHeader() throws Exception {
+        BloomFilterImpl impl = new BloomFilterImpl(1000, 0.01f);
+        for (int x = 0; x < 1000; x++) {
+            impl.add(ByteBuffer.allocate(4).putInt(x).array());
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        impl.writeTo(output);
+        assert new BloomFilterImpl(new ByteArrayInputStream(output.toByteArray())).isConsistent();
+
+        // current element amount at bytes 12 - 15
+        byte[] bytes = output.toByteArray();
+        ByteBuffer.wrap(bytes).putInt(12, 100);
+        assert !new BloomFilterImpl(new ByteArrayInputStream(bytes)).isConsistent();
+    }
+
+    @Test
+    public void testLargeSize() {
+        // more than 2^31 bits
+        long words = BloomFilterImpl.calcSize(300000000, 0.01f);
+        double bits = Math.ceil((300000000 * Math.log(0.01f)) / Math.log(1 / Math.pow(2, Math.log(2))));
+        assert words * 32 >= bits;
+        assert words * 32 < bits + 128;
+        assert words * 32 > Integer.MAX_VALUE;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyWords() {
+        new BloomFilterImpl(8L * Integer.MAX_VALUE, (byte) 1, 1, HashStrategy.SHA256);
+    }
+
     @Test
     public void runTests() throws Exception {
         this.testObjects = this.readFromJson();
@@ -211,7 +703,7 @@ public class BloomFilterUnitTest {
         float propScan = 0.00001f;
         int entries = 10000;
         BloomFilter filter = new BloomFilterImpl(entries, propScan);
-        Random r = new Random();
+        Random r = new Random(2022);
         for (int x = 0; x < entries; x++) {
             filter.add(new byte[]{(byte) r.nextInt(256),
                     (byte) r.nextInt(256),
@@ -370,6 +862,14 @@ public class BloomFilterUnitTest {
         System.out.printf("LookupTest: Strikes -> %s%n", strike);
     }
 
+    private byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
     private byte[] dataToArr(Object obj) {
         return obj.toString().getBytes(StandardCharsets.UTF_8);
     }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+public class BulkLoaderUnitTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] record(int x) throws NoSuchAlgorithmException {
+        return BloomFilterImpl.hash(ByteBuffer.allocate(4).putInt(x).array());
+    }
+
+    private BloomFilterImpl sequential(int count) throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl filter = new BloomFilterImpl(count, 0.001f);
+        for (int x = 0; x < count; x++) {
+            filter.add(record(x));
+        }
+        return filter;
+    }
+
+    @Test
+    public void testFixedLengthRecords() throws Exception {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (int x = 0; x < 10000; x++) {
+            records.write(record(x));
+        }
+        Path path = folder.newFile().toPath();
+        Files.write(path, records.toByteArray());
+
+        BloomFilterImpl filter = new BloomFilterImpl(10000, 0.001f);
+        AtomicLong reported = new AtomicLong();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // chunks of 1000 bytes do not end on record boundaries
+            BulkLoader loader = new BulkLoader(filter, pool, (count, nanos) -> reported.accumulateAndGet(count, Math::max), 1000);
+            assert loader.addRecords(path, 32) == 10000;
+        } finally {
+            pool.shutdown();
+        }
+        assert reported.get() == 10000;
+        assert filter.getCurrentElementAmount() == 10000;
+        assert filter.getData().toString().equals(sequential(10000).getData().toString());
+    }
+
+    @Test
+    public void testLines() throws Exception {
+        StringBuilder lines = new StringBuilder();
+        for (int x = 0; x < 5000; x++) {
+            lines.append("URN:UVCI:01:DE:").append(x).append(x % 3 == 0 ? "\r\n" : "\n");
+            if (x % 100 == 0) {
+                lines.append('\n');
+            }
+        }
+        Path path = folder.newFile().toPath();
+        Files.write(path, lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        BloomFilterImpl expected = new BloomFilterImpl(5000, 0.001f);
+        for (int x = 0; x < 5000; x++) {
+            expected.add(("URN:UVCI:01:DE:" + x).getBytes(StandardCharsets.UTF_8));
+        }
+
+        // every chunk size splits the lines differently
+        for (int chunkSize : new int[]{7, 64, 1000, 1 << 20}) {
+            BloomFilterImpl filter = new BloomFilterImpl(5000, 0.001f);
+            BulkLoader loader = new BulkLoader(filter, ForkJoinPool.commonPool(), null, chunkSize);
+            assert loader.addLines(path) == 5000;
+            assert filter.getData().toString().equals(expected.getData().toString());
+        }
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        BloomFilterImpl filter = new BloomFilterImpl(10000, 0.001f);
+        AtomicLong reported = new AtomicLong();
+        BulkLoader loader = new BulkLoader(filter, ForkJoinPool.commonPool(),
+                (count, nanos) -> reported.accumulateAndGet(count, Math::max));
+        long added = loader.addAll(IntStream.range(0, 10000).mapToObj(x -> {
+            try {
+                return record(x);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assert added == 10000;
+        assert reported.get() == 10000;
+        assert filter.getData().toString().equals(sequential(10000).getData().toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testIncompleteRecord() throws Exception {
+        Path path = folder.newFile().toPath();
+        Files.write(path, new byte[33]);
+        new BulkLoader(new BloomFilterImpl(100, 0.01f)).addRecords(path, 32);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+public class CountingBloomFilterUnitTest {
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    @Test
+    public void testRemove() throws FilterException, NoSuchAlgorithmException {
+        for (HashStrategy strategy : HashStrategy.values()) {
+            CountingBloomFilter filter = new CountingBloomFilter(10000, 0.001f, strategy);
+            for (int x = 0; x < 10000; x++) {
+                filter.add(element(x));
+            }
+            for (int x = 0; x < 10000; x += 2) {
+                assert filter.remove(element(x));
+            }
+            assert filter.getCurrentElementAmount() == 5000;
+            for (int x = 1; x < 10000; x += 2) {
+                assert filter.mightContain(element(x));
+            }
+            int falsePositives = 0;
+            for (int x = 0; x < 10000; x += 2) {
+                if (filter.mightContain(element(x))) {
+                    falsePositives++;
+                }
+            }
+            assert falsePositives < 50;
+        }
+    }
+
+    @Test
+    public void testRemoveAbsent() throws FilterException, NoSuchAlgorithmException {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.001f);
+        filter.add(element(1));
+        assert !filter.remove(element(2));
+        assert filter.mightContain(element(1));
+        assert filter.remove(element(1));
+        assert !filter.mightContain(element(1));
+        assert !filter.remove(element(1));
+    }
+
+    @Test
+    public void testSaturation() throws FilterException, NoSuchAlgorithmException {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.001f);
+        for (int i = 0; i < 20; i++) {
+            filter.add(element(1));
+        }
+        for (int i = 0; i < 20; i++) {
+            filter.remove(element(1));
+        }
+        // saturated counters stay set
+        assert filter.mightContain(element(1));
+    }
+
+    @Test
+    public void testToBloomFilter() throws FilterException, IOException, NoSuchAlgorithmException {
+        for (HashStrategy strategy : HashStrategy.values()) {
+            CountingBloomFilter counting = new CountingBloomFilter(10000, 0.001f, strategy);
+            BloomFilterImpl expected = new BloomFilterImpl(10000, 0.001f, strategy);
+            for (int x = 0; x < 10000; x++) {
+                counting.add(element(x));
+                if (x % 3 != 0) {
+                    expected.add(element(x));
+                }
+            }
+            for (int x = 0; x < 10000; x += 3) {
+                counting.remove(element(x));
+            }
+
+            BloomFilterImpl plain = counting.toBloomFilter();
+            assert plain.getK() == expected.getK();
+            assert plain.getM() == expected.getM();
+            assert plain.getP() == expected.getP();
+            assert plain.getN() == expected.getN();
+            assert plain.getHashStrategy() == strategy;
+            assert plain.getData().toString().equals(expected.getData().toString());
+        }
+    }
+
+    @Test
+    public void testStreams() throws FilterException, IOException, NoSuchAlgorithmException {
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01f, HashStrategy.SHA256_DOUBLE_HASHING);
+        for (int x = 0; x < 1000; x++) {
+            filter.add(element(x));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.writeTo(output);
+        assert ByteBuffer.wrap(output.toByteArray()).getShort() == 3;
+        assert output.size() == FilterHeader.SIZE + filter.getM() / 2;
+
+        CountingBloomFilter read = new CountingBloomFilter(new ByteArrayInputStream(output.toByteArray()));
+        assert read.getK() == filter.getK();
+        assert read.getM() == filter.getM();
+        assert read.getP() == filter.getP();
+        assert read.getN() == filter.getN();
+        assert read.getCurrentElementAmount() == 1000;
+        for (int x = 0; x < 1000; x += 2) {
+            assert read.remove(element(x));
+        }
+        for (int x = 1; x < 1000; x += 2) {
+            assert read.mightContain(element(x));
+        }
+    }
+
+    @Test
+    public void testReadFromTruncatedStream() throws FilterException, IOException, NoSuchAlgorithmException {
+        CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01f, HashStrategy.MURMUR3_128);
+        filter.add(element(1));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new CountingBloomFilter(2000, 0.001f).writeTo(output);
+        byte[] truncated = Arrays.copyOf(output.toByteArray(), output.size() - 1);
+        try {
+            filter.readFrom(new ByteArrayInputStream(truncated));
+            assert false;
+        } catch (IOException e) {
+            // expected
+        }
+        assert filter.getHashStrategy() == HashStrategy.MURMUR3_128;
+        assert filter.getN() == 1000;
+        assert filter.mightContain(element(1));
+
+        filter.readFrom(new ByteArrayInputStream(output.toByteArray()));
+        assert filter.getN() == 2000;
+        assert !filter.mightContain(element(1));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import com.google.common.hash.Hashing;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class FastHashUnitTest {
+
+    @Test
+    public void testMurmur3MatchesGuava() {
+        Random r = new Random(2022);
+        long[] result = new long[2];
+        for (int length = 0; length < 100; length++) {
+            byte[] element = new byte[length + 3];
+            r.nextBytes(element);
+            FastHash.murmur3(element, 3, length, 0, result);
+            byte[] expected = Hashing.murmur3_128().hashBytes(element, 3, length).asBytes();
+            ByteBuffer halves = ByteBuffer.wrap(expected).order(ByteOrder.LITTLE_ENDIAN);
+            assert result[0] == halves.getLong();
+            assert result[1] == halves.getLong();
+        }
+    }
+
+    @Test
+    public void testXxHash64ReferenceValues() {
+        String[] inputs = {"", "a", "abc", "Nobody inspects the spammish repetition"};
+        long[] expected = {0xEF46DB3751D8E999L, 0xD24EC4F1A98C6E5BL, 0x44BC2CF5AD770999L, 0xFBCEA83C8A378BF1L};
+        for (int i = 0; i < inputs.length; i++) {
+            byte[] input = ("x" + inputs[i]).getBytes(StandardCharsets.US_ASCII);
+            assert FastHash.xxHash64(input, 1, input.length - 1, 0) == expected[i];
+        }
+    }
+
+    @Test
+    public void testBufferVariantsMatchArrays() {
+        Random r = new Random(2023);
+        long[] expected = new long[2];
+        long[] result = new long[2];
+        for (int length = 0; length < 100; length++) {
+            byte[] element = new byte[length + 3];
+            r.nextBytes(element);
+            FastHash.murmur3(element, 3, length, 0, expected);
+            for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                ByteBuffer direct = ByteBuffer.allocateDirect(element.length).order(order).put(element);
+                direct.position(1);
+                FastHash.murmur3(direct, 3, length, 0, result);
+                assert Arrays.equals(result, expected);
+                assert FastHash.xxHash64(direct.asReadOnlyBuffer(), 3, length, 1)
+                        == FastHash.xxHash64(element, 3, length, 1);
+                assert direct.position() == 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class FilterBuilderUnitTest {
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    @Test
+    public void testSizedFromDistinctElements() throws Exception {
+        for (HashStrategy strategy : new HashStrategy[]{HashStrategy.SHA256_DOUBLE_HASHING,
+                HashStrategy.SHA256_BLOCKED, HashStrategy.MURMUR3_128, HashStrategy.XXHASH64}) {
+            Path directory = Files.createTempDirectory("builder");
+            BloomFilterImpl filter;
+            // small chunks to map the spill file in many parts
+            try (FilterBuilder builder = new FilterBuilder(0.01f, strategy, directory, 24 * 1000)) {
+                for (int x = 0; x < 100000; x++) {
+                    builder.add(element(x));
+                    // duplicates do not count
+                    builder.add(element(x));
+                }
+                assert builder.getCount() == 200000;
+                filter = builder.build();
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                assert files.count() == 0;
+            }
+            Files.delete(directory);
+
+            assert filter.getN() >= 100000 && filter.getN() < 106000;
+            assert Math.abs(filter.getCurrentElementAmount() - 100000) < 3000;
+            assert !filter.isFilled();
+            BloomFilterImpl expected = new BloomFilterImpl(filter.getN(), 0.01f, strategy);
+            for (int x = 0; x < 100000; x++) {
+                expected.add(element(x));
+                assert filter.mightContain(element(x));
+            }
+            for (int w = 0; w < expected.getData().length(); w++) {
+                assert filter.getData().get(w) == expected.getData().get(w);
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        try (FilterBuilder builder = new FilterBuilder(0.01f)) {
+            BloomFilterImpl filter = builder.build();
+            assert filter.getN() == 1;
+            assert filter.getCurrentElementAmount() == 0;
+            assert !filter.mightContain(element(1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPerRoundStrategy() throws IOException {
+        new FilterBuilder(0.01f, HashStrategy.SHA256, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuildOnce() throws Exception {
+        try (FilterBuilder builder = new FilterBuilder(0.01f)) {
+            builder.add(element(1));
+            builder.build();
+            builder.add(element(2));
+        }
+    }
+
+    @Test
+    public void testSketchAccuracy() {
+        for (int cardinality : new int[]{10, 1000, 50000, 1000000}) {
+            CardinalitySketch sketch = new CardinalitySketch();
+            for (int x = 0; x < cardinality; x++) {
+                // distinct, uniformly distributed hashes
+                sketch.add(FastHash.xxHash64(element(x), 0, 4, cardinality));
+            }
+            double error = Math.abs(sketch.estimate() - cardinality) / cardinality;
+            assert error < 4 * sketch.getStandardError();
+        }
+    }
+}
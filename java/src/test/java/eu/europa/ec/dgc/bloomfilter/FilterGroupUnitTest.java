@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+public class FilterGroupUnitTest {
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    @Test
+    public void testMatchesSingleLookups() throws FilterException, IOException, NoSuchAlgorithmException {
+        List<BloomFilterImpl> filters = new ArrayList<>();
+        for (HashStrategy strategy : HashStrategy.values()) {
+            // equal sizes with different k, and different sizes
+            filters.add(new BloomFilterImpl(8000, (byte) 3, 1000, strategy));
+            filters.add(new BloomFilterImpl(8000, (byte) 7, 1000, strategy));
+            filters.add(new BloomFilterImpl(1000, 0.01f, strategy));
+        }
+        for (int f = 0; f < filters.size(); f++) {
+            for (int x = f; x < 3000; x += filters.size()) {
+                filters.get(f).add(element(x));
+            }
+        }
+
+        FilterGroup group = new FilterGroup(filters);
+        assert group.size() == filters.size();
+        BitSet reused = new BitSet();
+        for (int x = 0; x < 6000; x++) {
+            BitSet result = group.mightContain(element(x));
+            for (int f = 0; f < filters.size(); f++) {
+                assert result.get(f) == filters.get(f).mightContain(element(x));
+            }
+            assert group.mightContain(element(x), reused) == reused;
+            assert reused.equals(result);
+            if (x < 3000) {
+                assert result.get(x % filters.size());
+            }
+        }
+        assert group.matching(element(4)).contains(filters.get(4));
+    }
+
+    @Test
+    public void testEmptyGroup() throws FilterException, NoSuchAlgorithmException {
+        assert new FilterGroup(Collections.emptyList()).mightContain(element(1)).isEmpty();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FilterMetricsUnitTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    @Test
+    public void testCounters() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl filter = new BloomFilterImpl(100, 0.001f);
+        FilterMetrics metrics = new FilterMetrics(1);
+        Map<FilterOperation, AtomicInteger> samples = new EnumMap<>(FilterOperation.class);
+        AtomicInteger filled = new AtomicInteger();
+        metrics.addListener(new FilterMetricsListener() {
+            @Override
+            public void onSample(FilterOperation operation, long nanos) {
+                samples.computeIfAbsent(operation, o -> new AtomicInteger()).incrementAndGet();
+            }
+
+            @Override
+            public void onFilled(long elements, int definedElements) {
+                assert elements == 100 && definedElements == 100;
+                filled.incrementAndGet();
+            }
+        });
+        filter.setMetrics(metrics);
+        assert filter.getMetrics() == metrics;
+
+        for (int x = 0; x < 200; x++) {
+            filter.add(element(x));
+        }
+        for (int x = 0; x < 400; x++) {
+            filter.mightContain(element(x));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.writeTo(output);
+        filter.readFrom(new ByteArrayInputStream(output.toByteArray()));
+
+        assert metrics.getAdds() == 200;
+        assert metrics.getLookups() == 400;
+        assert metrics.getPositives() >= 200;
+        assert metrics.getPositiveRate() >= 0.5;
+        assert filled.get() == 1;
+        assert metrics.getLatency(FilterOperation.ADD).getCount() == 200;
+        assert metrics.getLatency(FilterOperation.LOOKUP).getCount() == 400;
+        assert samples.get(FilterOperation.ADD).get() == 200;
+        assert samples.get(FilterOperation.LOOKUP).get() == 400;
+        assert samples.get(FilterOperation.SERIALIZE).get() == 1;
+        assert samples.get(FilterOperation.LOAD).get() == 1;
+
+        assert filter.getFillRatio() > 0.5 && filter.getFillRatio() < 1;
+
+        filter.setMetrics(null);
+        filter.add(element(1000));
+        assert metrics.getAdds() == 200;
+    }
+
+    @Test
+    public void testLoadBeforeMetrics() throws FilterException, IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new BloomFilterImpl(100, 0.001f).writeTo(output);
+        BloomFilterImpl filter = new BloomFilterImpl(Channels.newChannel(new ByteArrayInputStream(output.toByteArray())));
+
+        // the load of the constructor is recorded once, when the metrics are set
+        FilterMetrics metrics = new FilterMetrics(1);
+        filter.setMetrics(metrics);
+        assert metrics.getLatency(FilterOperation.LOAD).getCount() == 1;
+        filter.setMetrics(metrics);
+        assert metrics.getLatency(FilterOperation.LOAD).getCount() == 1;
+
+        filter.readFrom(new ByteArrayInputStream(output.toByteArray()));
+        assert metrics.getLatency(FilterOperation.LOAD).getCount() == 2;
+    }
+
+    @Test
+    public void testFilledLargeFilter() throws FilterException, IOException, NoSuchAlgorithmException {
+        // large filters check the element amount every 64th add of a thread
+        int elements = 1 << 16;
+        BloomFilterImpl filter = new BloomFilterImpl(elements, 0.01f, HashStrategy.MURMUR3_128);
+        FilterMetrics metrics = new FilterMetrics(1000);
+        AtomicInteger filled = new AtomicInteger();
+        metrics.addListener(new FilterMetricsListener() {
+            @Override
+            public void onFilled(long currentElements, int definedElements) {
+                assert currentElements >= elements && currentElements < elements + 64;
+                filled.incrementAndGet();
+            }
+        });
+        filter.setMetrics(metrics);
+        for (int x = 0; x < elements + 64; x++) {
+            filter.add(element(x));
+        }
+        assert filled.get() == 1;
+    }
+
+    @Test
+    public void testSampling() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl filter = new BloomFilterImpl(10000, 0.001f);
+        FilterMetrics metrics = new FilterMetrics(100);
+        filter.setMetrics(metrics);
+        for (int x = 0; x < 10000; x++) {
+            filter.mightContain(element(x));
+        }
+        assert metrics.getLookups() == 10000;
+        long sampled = metrics.getLatency(FilterOperation.LOOKUP).getCount();
+        assert sampled > 20 && sampled < 300;
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000);
+        }
+        assert histogram.getCount() == 100;
+        assert histogram.getCount(7) == 90;
+        assert histogram.getQuantile(0.5) == 127;
+        assert histogram.getQuantile(0.99) == 8191;
+        assert new LatencyHistogram().getQuantile(0.5) == 0;
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        Path dump = folder.newFile("filter.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable("eu.europa.ec.dgc.bloomfilter.Load").withoutThreshold();
+            recording.enable("eu.europa.ec.dgc.bloomfilter.Serialize").withoutThreshold();
+            recording.start();
+            BloomFilterImpl filter = new BloomFilterImpl(1000, 0.01f);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            filter.writeCompressedTo(output);
+            new BloomFilterImpl(new ByteArrayInputStream(output.toByteArray()));
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assert events.stream().anyMatch(e -> e.getEventType().getName().equals("eu.europa.ec.dgc.bloomfilter.Load")
+                && e.getShort("version") == 2);
+        assert events.stream().anyMatch(e -> e.getEventType().getName().equals("eu.europa.ec.dgc.bloomfilter.Serialize")
+                && e.getLong("bytes") > 0);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FilterRegistryUnitTest {
+
+    /**
+     * Filter of 1000 bytes per version, containing the version number.
+     */
+    private static final class TestSource implements FilterRegistry.FilterSource {
+        private final Map<String, byte[]> filters = new ConcurrentHashMap<>();
+        private final AtomicInteger loads = new AtomicInteger();
+
+        void put(String id, long version) throws IOException, FilterException, NoSuchAlgorithmException {
+            BloomFilterImpl filter = new BloomFilterImpl(1000, (byte) 5, 100);
+            filter.add(element(version));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            filter.writeTo(output);
+            this.filters.put(id + "/" + version, output.toByteArray());
+        }
+
+        @Override
+        public InputStream open(String id, long version) throws IOException {
+            byte[] filter = this.filters.get(id + "/" + version);
+            if (filter == null) {
+                throw new IOException("Missing " + id + "/" + version);
+            }
+            this.loads.incrementAndGet();
+            return new ByteArrayInputStream(filter);
+        }
+    }
+
+    private static byte[] element(long x) {
+        return ByteBuffer.allocate(8).putLong(x).array();
+    }
+
+    @Test
+    public void testHotSwap() throws Exception {
+        TestSource source = new TestSource();
+        source.put("DE", 1);
+        source.put("DE", 2);
+        try (FilterRegistry registry = new FilterRegistry(source, 1 << 20)) {
+            assert registry.get("DE") == null;
+            assert registry.getVersion("DE") == -1;
+
+            BloomFilterImpl first = registry.update("DE", 1).join();
+            assert registry.get("DE") == first;
+            assert first.mightContain(element(1));
+
+            BloomFilterImpl second = registry.update("DE", 2).join();
+            assert registry.get("DE") == second;
+            assert registry.getVersion("DE") == 2;
+            assert second.mightContain(element(2));
+            // older or equal versions are not loaded again
+            assert registry.update("DE", 1).join() == second;
+            assert registry.update("DE", 2).join() == second;
+            assert source.loads.get() == 2;
+            assert registry.getLoadedBytes() == 1000;
+        }
+    }
+
+    @Test
+    public void testFailedUpdate() throws Exception {
+        TestSource source = new TestSource();
+        source.put("DE", 1);
+        try (FilterRegistry registry = new FilterRegistry(source, 1 << 20)) {
+            BloomFilterImpl first = registry.update("DE", 1).join();
+            try {
+                registry.update("DE", 2).join();
+                assert false;
+            } catch (CompletionException e) {
+                assert e.getCause() instanceof UncheckedIOException;
+            }
+            assert registry.get("DE") == first;
+            assert registry.getVersion("DE") == 1;
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        TestSource source = new TestSource();
+        for (String id : new String[]{"AT", "BE", "DE"}) {
+            source.put(id, 1);
+        }
+        try (FilterRegistry registry = new FilterRegistry(source, 2500)) {
+            registry.update("AT", 1).join();
+            registry.update("BE", 1).join();
+            registry.get("AT");
+            // BE is the least recently used
+            registry.update("DE", 1).join();
+            assert registry.getLoadedBytes() == 2000;
+            assert source.loads.get() == 3;
+
+            registry.get("AT");
+            registry.get("DE");
+            assert source.loads.get() == 3;
+            BloomFilterImpl reloaded = registry.get("BE");
+            assert source.loads.get() == 4;
+            assert reloaded.mightContain(element(1));
+            assert registry.get("BE") == reloaded;
+            assert registry.getLoadedBytes() == 2000;
+            assert registry.getVersion("BE") == 1;
+            assert registry.size() == 3;
+
+            registry.remove("BE");
+            assert registry.get("BE") == null;
+            assert registry.getLoadedBytes() == 1000;
+        }
+    }
+
+    @Test
+    public void testFilterLargerThanBudget() throws Exception {
+        TestSource source = new TestSource();
+        source.put("DE", 1);
+        try (FilterRegistry registry = new FilterRegistry(source, 500)) {
+            BloomFilterImpl filter = registry.update("DE", 1).join();
+            assert registry.get("DE") == filter;
+            assert registry.getLoadedBytes() == 1000;
+        }
+    }
+
+    @Test
+    public void testOutdatedUpdateOfEvictedFilter() throws Exception {
+        TestSource source = new TestSource();
+        source.put("DE", 1);
+        source.put("DE", 2);
+        source.put("AT", 1);
+        List<Runnable> tasks = new ArrayList<>();
+        // while version 1 of DE is loading, version 2 is published and evicted by AT
+        FilterRegistry.FilterSource racing = (id, version) -> {
+            InputStream stream = source.open(id, version);
+            if (id.equals("DE") && version == 1) {
+                tasks.get(1).run();
+                tasks.get(2).run();
+            }
+            return stream;
+        };
+        try (FilterRegistry registry = new FilterRegistry(racing, 1000, tasks::add)) {
+            CompletableFuture<BloomFilterImpl> outdated = registry.update("DE", 1);
+            registry.update("DE", 2);
+            registry.update("AT", 1);
+            tasks.get(0).run();
+
+            // the current version is returned, not the outdated one
+            BloomFilterImpl filter = outdated.join();
+            assert filter.mightContain(element(2));
+            assert !filter.mightContain(element(1));
+            assert registry.getVersion("DE") == 2;
+            assert registry.get("DE") == filter;
+
+            // an outdated update of an evicted filter reloads the current version without loading its own
+            registry.update("AT", 1);
+            tasks.get(3).run();
+            int loads = source.loads.get();
+            CompletableFuture<BloomFilterImpl> again = registry.update("DE", 1);
+            tasks.get(4).run();
+            assert again.join().mightContain(element(2));
+            assert source.loads.get() == loads + 1;
+        }
+    }
+}
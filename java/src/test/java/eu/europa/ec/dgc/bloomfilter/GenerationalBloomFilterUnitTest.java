@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+public class GenerationalBloomFilterUnitTest {
+    private static final Instant START = Instant.parse("2022-03-01T00:00:00Z");
+    private static final Duration DAY = Duration.ofDays(1);
+
+    /**
+     * Clock which is moved forward manually.
+     */
+    private static class TestClock extends Clock {
+        private Instant now = START;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.now;
+        }
+    }
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    @Test
+    public void testExpiry() throws FilterException, NoSuchAlgorithmException {
+        TestClock clock = new TestClock();
+        GenerationalBloomFilter filter = new GenerationalBloomFilter(DAY, 30, 1000, 0.001f, HashStrategy.SHA256, clock);
+        for (int x = 0; x < 3000; x++) {
+            // expiring at the end of the first, second and third day
+            filter.add(element(x), START.plus(DAY.multipliedBy(x % 3 + 1)).minusSeconds(1));
+        }
+        assert filter.getBucketCount() == 3;
+        for (int x = 0; x < 3000; x++) {
+            assert filter.mightContain(element(x));
+        }
+
+        clock.now = START.plus(DAY.multipliedBy(2)).plusSeconds(1);
+        assert filter.getBucketCount() == 1;
+        int falsePositives = 0;
+        for (int x = 0; x < 3000; x++) {
+            if (x % 3 == 2) {
+                assert filter.mightContain(element(x));
+            } else if (filter.mightContain(element(x))) {
+                falsePositives++;
+            }
+        }
+        assert falsePositives < 10;
+
+        filter.expire();
+        clock.now = START.plus(DAY.multipliedBy(4));
+        assert filter.getBucketCount() == 0;
+        assert !filter.mightContain(element(2));
+    }
+
+    @Test
+    public void testExpiredElement() throws FilterException, NoSuchAlgorithmException {
+        GenerationalBloomFilter filter = new GenerationalBloomFilter(DAY, 30, 1000, 0.001f, HashStrategy.SHA256,
+                new TestClock());
+        filter.add(element(1), START);
+        assert filter.getBucketCount() == 0;
+        filter.add(element(1));
+        assert filter.mightContain(element(1));
+    }
+
+    @Test(expected = FilterException.class)
+    public void testExpiryBeyondLastPeriod() throws FilterException, NoSuchAlgorithmException {
+        GenerationalBloomFilter filter = new GenerationalBloomFilter(DAY, 30, 1000, 0.001f, HashStrategy.SHA256,
+                new TestClock());
+        filter.add(element(1), START.plus(DAY.multipliedBy(31)));
+    }
+
+    @Test
+    public void testStreams() throws FilterException, IOException, NoSuchAlgorithmException {
+        TestClock clock = new TestClock();
+        GenerationalBloomFilter filter = new GenerationalBloomFilter(Duration.ofHours(1), 48, 100, 0.01f,
+                HashStrategy.SHA256_DOUBLE_HASHING, clock);
+        for (int x = 0; x < 500; x++) {
+            filter.add(element(x), START.plus(Duration.ofMinutes(30 + x)));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.writeTo(output);
+
+        GenerationalBloomFilter read = new GenerationalBloomFilter(new ByteArrayInputStream(output.toByteArray()), clock);
+        assert read.getBucketCount() == filter.getBucketCount();
+        assert read.getPeriod().equals(Duration.ofHours(1));
+        assert read.getM() == filter.getM();
+        assert read.getHashStrategy() == HashStrategy.SHA256_DOUBLE_HASHING;
+        for (int x = 0; x < 500; x++) {
+            assert read.mightContain(element(x));
+        }
+
+        // buckets expired since writing are dropped, elements expire from 00:30 to 08:49
+        assert read.getBucketCount() == 9;
+        clock.now = START.plus(Duration.ofHours(3));
+        GenerationalBloomFilter later = new GenerationalBloomFilter(new ByteArrayInputStream(output.toByteArray()), clock);
+        assert later.getBucketCount() == 6;
+        assert later.mightContain(element(499));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStreamWithoutClock() throws FilterException, IOException {
+        new GenerationalBloomFilter(new ByteArrayInputStream(new byte[0]), null);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+public class ImmutableBloomFilterUnitTest {
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    private BloomFilterImpl createFilter(HashStrategy strategy) throws FilterException, IOException,
+            NoSuchAlgorithmException {
+        BloomFilterImpl filter = new BloomFilterImpl(10000, 0.001f, strategy);
+        for (int x = 0; x < 10000; x += 2) {
+            filter.add(element(x));
+        }
+        return filter;
+    }
+
+    @Test
+    public void testFreeze() throws FilterException, IOException, NoSuchAlgorithmException {
+        for (HashStrategy strategy : HashStrategy.values()) {
+            BloomFilterImpl filter = createFilter(strategy);
+            ImmutableBloomFilter frozen = filter.freeze();
+            assert frozen.getK() == filter.getK();
+            assert frozen.getP() == filter.getP();
+            assert frozen.getM() == filter.getM();
+            assert frozen.getN() == filter.getN();
+            assert frozen.getHashStrategy() == strategy;
+            for (int x = 0; x < 20000; x++) {
+                assert frozen.mightContain(element(x)) == filter.mightContain(element(x));
+            }
+
+            // the snapshot does not change with the filter
+            filter.add(element(1));
+            if (!frozen.mightContain(element(1))) {
+                assert filter.mightContain(element(1));
+            }
+        }
+    }
+
+    @Test
+    public void testStreams() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl filter = createFilter(HashStrategy.SHA256);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.writeTo(output);
+
+        ByteArrayOutputStream frozenOutput = new ByteArrayOutputStream();
+        filter.freeze().writeTo(frozenOutput);
+        assert Arrays.equals(frozenOutput.toByteArray(), output.toByteArray());
+
+        ImmutableBloomFilter read = new ImmutableBloomFilter(new ByteArrayInputStream(output.toByteArray()));
+        ImmutableBloomFilter readChannel = new ImmutableBloomFilter(
+                Channels.newChannel(new ByteArrayInputStream(output.toByteArray())));
+        for (int x = 0; x < 20000; x++) {
+            assert read.mightContain(element(x)) == filter.mightContain(element(x));
+            assert readChannel.mightContain(element(x)) == filter.mightContain(element(x));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAdd() throws FilterException, IOException, NoSuchAlgorithmException {
+        new BloomFilterImpl(10, 0.01f).freeze().add(element(1));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+public class MappedBloomFilterUnitTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path writeFilter(BloomFilterImpl filter) throws IOException, FilterException {
+        Path path = folder.newFile().toPath();
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            filter.writeTo(outputStream);
+        }
+        return path;
+    }
+
+    @Test
+    public void testLookup() throws FilterException, IOException, NoSuchAlgorithmException {
+        for (HashStrategy strategy : HashStrategy.values()) {
+            BloomFilterImpl filter = new BloomFilterImpl(10000, 0.001f, strategy);
+            for (int x = 0; x < 10000; x += 2) {
+                filter.add(ByteBuffer.allocate(4).putInt(x).array());
+            }
+            MappedBloomFilter mapped = new MappedBloomFilter(writeFilter(filter));
+            assert mapped.getK() == filter.getK();
+            assert mapped.getP() == filter.getP();
+            assert mapped.getM() == filter.getM();
+            assert mapped.getN() == filter.getN();
+            assert mapped.getHashStrategy() == strategy;
+            for (int x = 0; x < 20000; x++) {
+                byte[] element = ByteBuffer.allocate(4).putInt(x).array();
+                assert mapped.mightContain(element) == filter.mightContain(element);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteTo() throws FilterException, IOException, NoSuchAlgorithmException {
+        BloomFilterImpl filter = new BloomFilterImpl(100000, 0.01f);
+        filter.add(new byte[]{5, 3, 2, 7});
+        Path path = writeFilter(filter);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new MappedBloomFilter(path).writeTo(output);
+        assert Arrays.equals(output.toByteArray(), Files.readAllBytes(path));
+    }
+
+    @Test
+    public void testMoreThan2Pow31Bits() throws FilterException, IOException, NoSuchAlgorithmException {
+        // sparse file, the data is never written completely
+        int words = (1 << 27) + 16;
+        long bits = (long) words * 32;
+        byte k = 8;
+        byte[] element = new byte[]{1, 2, 3, 4};
+        Path path = folder.newFile().toPath();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.writeShort(1);
+            file.writeByte(k);
+            file.writeByte(HashStrategy.SHA256.getId());
+            file.writeFloat(0.01f);
+            file.writeInt(1);
+            file.writeInt(1);
+            file.writeInt(words);
+            file.setLength(20 + (long) words * 4);
+
+            ElementHasher hasher = ElementHasher.get().reset(HashStrategy.SHA256, element, 0, element.length);
+            boolean beyond = false;
+            for (int i = 0; i < k; i++) {
+                long index = hasher.index(i, bits);
+                beyond |= index > Integer.MAX_VALUE;
+                long position = 20 + index / 32 * 4;
+                file.seek(position);
+                int word = file.readInt();
+                file.seek(position);
+                file.writeInt(word | (Integer.MIN_VALUE >>> index));
+            }
+            assert beyond;
+        }
+
+        MappedBloomFilter mapped = new MappedBloomFilter(path);
+        assert mapped.getM() == bits;
+        assert mapped.mightContain(element);
+        assert !mapped.mightContain(new byte[]{1, 2, 3, 5});
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() throws FilterException, IOException {
+        new MappedBloomFilter(writeFilter(new BloomFilterImpl(10, 0.01f))).add(new byte[]{1});
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws FilterException, IOException {
+        Path path = writeFilter(new BloomFilterImpl(1000, 0.01f));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        new MappedBloomFilter(path);
+    }
+}
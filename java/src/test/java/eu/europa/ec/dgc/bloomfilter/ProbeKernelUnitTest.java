@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class ProbeKernelUnitTest {
+
+    /** Set by the vector-test run of the jdk17 profile, the default run tests the scalar fallback. */
+    private static final String EXPECT_VECTOR_PROPERTY = "eu.europa.ec.dgc.bloomfilter.expectVector";
+
+    @Test
+    public void testVectorKernelLoaded() {
+        boolean expectVector = Boolean.getBoolean(EXPECT_VECTOR_PROPERTY);
+        assert ProbeKernel.get().isVectorized() == expectVector;
+        assert ProbeKernel.get() == ProbeKernel.SCALAR || expectVector;
+    }
+
+    @Test
+    public void testKernelMatchesScalar() {
+        Random r = new Random(2022);
+        ProbeKernel kernel = ProbeKernel.get();
+        int[] data = new int[1000];
+        int[] words = new int[128];
+        int[] masks = new int[128];
+        for (int x = 0; x < 20000; x++) {
+            for (int w = 0; w < data.length; w++) {
+                // dense words, so that all probes hit in some of the cases
+                data[w] = x % 2 == 0 ? ~(1 << r.nextInt(32)) : r.nextInt();
+            }
+            int count = r.nextInt(words.length);
+            for (int i = 0; i < words.length; i++) {
+                words[i] = i < count ? r.nextInt(data.length) : 0;
+                masks[i] = i < count ? Integer.MIN_VALUE >>> r.nextInt(32) : 0;
+            }
+            assert kernel.allSet(data, words, masks, count) == ProbeKernel.SCALAR.allSet(data, words, masks, count);
+        }
+    }
+
+    @Test
+    public void testVectorProbeMatchesFilter() throws Exception {
+        for (HashStrategy strategy : HashStrategy.values()) {
+            BloomFilterImpl filter = new BloomFilterImpl(1000, 0.00001f, strategy);
+            assert filter.getK() >= ImmutableBloomFilter.VECTOR_MIN_HASHES;
+            for (int x = 0; x < 1000; x++) {
+                filter.add(ByteBuffer.allocate(4).putInt(x).array());
+            }
+            ImmutableBloomFilter frozen = filter.freeze();
+            for (int x = 0; x < 20000; x++) {
+                byte[] element = ByteBuffer.allocate(4).putInt(x).array();
+                assert frozen.mightContain(element) == filter.mightContain(element);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2022 T-Systems International GmbH and all other contributors
+ */
+
+package eu.europa.ec.dgc.bloomfilter;
+
+import eu.europa.ec.dgc.bloomfilter.exception.FilterException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+
+public class ScalableBloomFilterUnitTest {
+
+    private byte[] element(int x) {
+        return ByteBuffer.allocate(4).putInt(x).array();
+    }
+
+    @Test
+    public void testGrowth() throws FilterException, IOException, NoSuchAlgorithmException {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01f);
+        for (int x = 0; x < 20000; x++) {
+            filter.add(element(x));
+        }
+        // 1000 + 2000 + 4000 + 8000 + 16000
+        assert filter.getSegmentCount() == 5;
+        assert filter.getN() == 31000;
+        assert filter.getCurrentElementAmount() == 20000;
+        for (int x = 0; x < 20000; x++) {
+            assert filter.mightContain(element(x));
+        }
+
+        int falsePositives = 0;
+        for (int x = 20000; x < 120000; x++) {
+            if (filter.mightContain(element(x))) {
+                falsePositives++;
+            }
+        }
+        assert falsePositives < 100000 * 0.01f;
+    }
+
+    @Test
+    public void testCapacityLimit() throws FilterException, IOException, NoSuchAlgorithmException {
+        // the false positive rate of the second segment is too small for a float
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01f, 1, Float.MIN_VALUE, HashStrategy.SHA256);
+        for (int x = 0; x < 100; x++) {
+            filter.add(element(x));
+        }
+        try {
+            filter.add(element(100));
+            assert false;
+        } catch (FilterException e) {
+            assert e.getCause() instanceof IllegalArgumentException;
+        }
+        assert filter.getSegmentCount() == 1;
+        for (int x = 0; x < 100; x++) {
+            assert filter.mightContain(element(x));
+        }
+    }
+
+    @Test
+    public void testStreams() throws FilterException, IOException, NoSuchAlgorithmException {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.001f, 3, 0.8f, HashStrategy.SHA256_DOUBLE_HASHING);
+        for (int x = 0; x < 1000; x++) {
+            filter.add(element(x));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filter.writeTo(output);
+
+        ScalableBloomFilter read = new ScalableBloomFilter(new ByteArrayInputStream(output.toByteArray()));
+        assert read.getSegmentCount() == filter.getSegmentCount();
+        assert read.getP() == filter.getP();
+        assert read.getM() == filter.getM();
+        assert read.getN() == filter.getN();
+        assert read.getHashStrategy() == HashStrategy.SHA256_DOUBLE_HASHING;
+        for (int x = 0; x < 1000; x++) {
+            assert read.mightContain(element(x));
+        }
+
+        // the read filter keeps growing with the same parameters
+        for (int x = 1000; x < 3000; x++) {
+            read.add(element(x));
+        }
+        assert read.getSegmentCount() == filter.getSegmentCount() + 1;
+    }
+
+    @Test(expected = IOException.class)
+    public void testPlainFilterIsNoContainer() throws FilterException, IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new BloomFilterImpl(100, 0.01f).writeTo(output);
+        new ScalableBloomFilter(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    @Test
+    public void testCompressedSegmentRejected() throws FilterException, IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ScalableBloomFilter(100, 0.01f).writeTo(output);
+        // container header and parameters (20 bytes) and the amount of segments, then the segment
+        ByteArrayOutputStream container = new ByteArrayOutputStream();
+        container.write(output.toByteArray(), 0, 24);
+        new BloomFilterImpl(100, 0.01f).writeCompressedTo(container);
+        try {
+            new ScalableBloomFilter(new ByteArrayInputStream(container.toByteArray()));
+            assert false;
+        } catch (IOException e) {
+            assert e.getMessage().contains("version 2");
+        }
+    }
+
+    @Test
+    public void testSampledGrowthOfLargeSegments() throws FilterException, IOException, NoSuchAlgorithmException {
+        int capacity = 1 << 16;
+        ScalableBloomFilter filter = new ScalableBloomFilter(capacity, 0.01f, ScalableBloomFilter.DEFAULT_GROWTH, 0.5f,
+                HashStrategy.MURMUR3_128);
+        for (int x = 0; x < capacity; x++) {
+            filter.add(element(x));
+        }
+        assert filter.getSegmentCount() == 1;
+        // the fill state is checked on one of the next 64 adds of the thread
+        for (int x = capacity; x < capacity + 64; x++) {
+            filter.add(element(x));
+        }
+        assert filter.getSegmentCount() == 2;
+    }
+}